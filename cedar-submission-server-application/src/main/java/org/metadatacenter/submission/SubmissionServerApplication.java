@@ -6,16 +6,38 @@ import org.metadatacenter.cedar.util.dw.CedarMicroserviceApplication;
 import org.metadatacenter.config.CedarConfig;
 import org.metadatacenter.model.ServerName;
 import org.metadatacenter.submission.health.SubmissionServerHealthCheck;
+import org.metadatacenter.submission.http.SubmissionHttpClient;
+import org.metadatacenter.submission.immport.ImmPortSubmissionStatusTask;
+import org.metadatacenter.submission.immport.ImmPortUtil;
+import org.metadatacenter.submission.lease.SubmissionLeaseManager;
+import org.metadatacenter.submission.ncbi.NcbiConstants;
 import org.metadatacenter.submission.ncbi.queue.NcbiSubmissionExecutorService;
 import org.metadatacenter.submission.ncbi.queue.NcbiSubmissionQueueProcessor;
 import org.metadatacenter.submission.ncbi.queue.NcbiSubmissionQueueService;
+import org.metadatacenter.submission.notifications.NotificationDispatcher;
 import org.metadatacenter.submission.notifications.StatusNotifier;
+import org.metadatacenter.submission.redis.SubmissionRedisClient;
 import org.metadatacenter.submission.resources.*;
+import org.metadatacenter.submission.status.SubmissionStatusBroadcaster;
+import org.metadatacenter.submission.status.SubmissionStatusManager;
+import org.metadatacenter.submission.status.SubmissionType;
+import org.metadatacenter.submission.status.store.FileSubmissionStatusStore;
+import org.metadatacenter.submission.status.store.RedisSubmissionStatusStore;
+import org.metadatacenter.submission.status.store.SubmissionStatusStore;
+import org.metadatacenter.submission.status.store.WriteBehindSubmissionStatusStore;
+
+import java.io.File;
 
 public class SubmissionServerApplication extends CedarMicroserviceApplication<SubmissionServerConfiguration> {
 
   private static NcbiSubmissionExecutorService ncbiSubmissionExecutorService;
   private static NcbiSubmissionQueueService ncbiSubmissionQueueService;
+  private static SubmissionLeaseManager submissionLeaseManager;
+  private static SubmissionRedisClient submissionRedisClient;
+  private static WriteBehindSubmissionStatusStore submissionStatusStore;
+
+  // "redis" (default) shares the submission statuses between nodes; "file" keeps them in a local file
+  public static final String STATUS_STORE_PROPERTY = "cedar.submission.statusStore";
 
   public static void main(String[] args) throws Exception {
     new SubmissionServerApplication().run(args);
@@ -32,15 +54,43 @@ public class SubmissionServerApplication extends CedarMicroserviceApplication<Su
 
   @Override
   public void initializeApp() {
-    ncbiSubmissionQueueService = new NcbiSubmissionQueueService(cedarConfig.getCacheConfig().getPersistent());
-
-    NcbiSubmissionQueueService ncbiSubmissionQueueService =
-        new NcbiSubmissionQueueService(cedarConfig.getCacheConfig().getPersistent());
+    submissionRedisClient = new SubmissionRedisClient(cedarConfig.getCacheConfig().getPersistent());
+    ncbiSubmissionQueueService =
+        new NcbiSubmissionQueueService(cedarConfig.getCacheConfig().getPersistent(), submissionRedisClient);
 
     NcbiGenericSubmissionServerResource.injectServices(ncbiSubmissionQueueService);
     NcbiCairrSubmissionServerResource.injectServices(ncbiSubmissionQueueService);
 
-    ncbiSubmissionExecutorService = new NcbiSubmissionExecutorService(cedarConfig);
+    submissionLeaseManager = new SubmissionLeaseManager(submissionRedisClient,
+        ncbiSubmissionQueueService.getQueueName(), NcbiConstants.NCBI_SUBMISSION_LEASE_TTL,
+        NcbiConstants.NCBI_SUBMISSION_LEASE_HEARTBEAT);
+    ncbiSubmissionExecutorService =
+        new NcbiSubmissionExecutorService(cedarConfig, submissionLeaseManager, ncbiSubmissionQueueService);
+    // Orphaned submissions are resumed by the status manager, which hands the NCBI uploads to the executor service
+    submissionLeaseManager.setTakeoverHandler(SubmissionStatusManager.getInstance());
+    SubmissionStatusManager.getInstance().setUploadTakeoverHandler(ncbiSubmissionExecutorService);
+    SubmissionStatusManager.getInstance().setLeaseManager(submissionLeaseManager);
+    // ImmPort submissions only need their status to be tracked again. NCBI submissions are resumed from the lease
+    // registry, since their upload may not be complete
+    SubmissionStatusManager.getInstance().setTaskFactory(record -> {
+      if (record.getSubmissionType() == SubmissionType.IMMPORT) {
+        return new ImmPortSubmissionStatusTask(record.getSubmissionID(), SubmissionType.IMMPORT, record.getUserID(),
+            record.getStatusURL(), new ImmPortUtil(cedarConfig));
+      } else {
+        return null;
+      }
+    });
+
+    SubmissionStatusStore statusStore;
+    if ("file".equalsIgnoreCase(System.getProperty(STATUS_STORE_PROPERTY))) {
+      statusStore = new FileSubmissionStatusStore(new File(System.getProperty("java.io.tmpdir"),
+          "submission-status.json"));
+    } else {
+      statusStore = new RedisSubmissionStatusStore(submissionRedisClient, ncbiSubmissionQueueService.getQueueName());
+    }
+    submissionStatusStore = new WriteBehindSubmissionStatusStore(statusStore);
+    SubmissionStatusManager.getInstance().setStatusStore(submissionStatusStore);
+    SubmissionStatusManager.getInstance().addStatusListener(SubmissionStatusBroadcaster.getInstance());
 
     StatusNotifier.initialize(cedarConfig);
   }
@@ -71,9 +121,38 @@ public class SubmissionServerApplication extends CedarMicroserviceApplication<Su
         (cedarConfig);
     environment.jersey().register(immPortSubmissionServerResource);
 
+    final SubmissionStatusResource submissionStatusResource = new SubmissionStatusResource(cedarConfig);
+    environment.jersey().register(submissionStatusResource);
+
     final SubmissionServerHealthCheck healthCheck = new SubmissionServerHealthCheck();
     environment.healthChecks().register("message", healthCheck);
 
+    // Shared Redis client. Registered first so that it is closed after everything that uses it
+    submissionRedisClient.registerMetrics(environment.metrics());
+    environment.lifecycle().manage(submissionRedisClient);
+
+    // Shared HTTP client for the calls to ImmPort, the NCBI validator and LINCS
+    SubmissionHttpClient.getInstance().registerMetrics(environment.metrics());
+    environment.lifecycle().manage(SubmissionHttpClient.getInstance());
+
+    // Submission statuses are written in batches. Flushed on stop, once status tracking has stopped
+    environment.lifecycle().manage(submissionStatusStore);
+
+    // Lease-based ownership of submissions across server nodes
+    environment.lifecycle().manage(submissionLeaseManager);
+
+    // Status notifications are sent in the background. Stopped once status tracking has stopped
+    environment.lifecycle().manage(NotificationDispatcher.getInstance());
+
+    // Managed objects are stopped in reverse order: the NCBI processor drains first, then status polling stops, and
+    // finally the leases on unfinished submissions are handed off
+    SubmissionStatusManager.getInstance().registerMetrics(environment.metrics());
+    environment.lifecycle().manage(SubmissionStatusManager.getInstance());
+
+    // Resume the tracking of the submissions left by a previous run
+    SubmissionStatusManager.getInstance().setCedarConfig(cedarConfig);
+    SubmissionStatusManager.getInstance().restoreSubmissions();
+
     // NCBI submission processor
     NcbiSubmissionQueueProcessor ncbiSubmissionProcessor =
         new NcbiSubmissionQueueProcessor(ncbiSubmissionQueueService, ncbiSubmissionExecutorService);
@@ -15,8 +15,6 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.metadatacenter.cedar.util.dw.CedarMicroserviceResource;
 import org.metadatacenter.config.CedarConfig;
@@ -27,6 +25,8 @@ import org.metadatacenter.submission.CEDARSubmitResponse;
 import org.metadatacenter.submission.CEDARWorkspaceResponse;
 import org.metadatacenter.submission.Workspace;
 import org.metadatacenter.submission.exception.SubmissionInstanceNotFoundException;
+import org.metadatacenter.submission.http.HttpUpstream;
+import org.metadatacenter.submission.http.SubmissionHttpClient;
 import org.metadatacenter.submission.immport.ImmPortConstants;
 import org.metadatacenter.submission.immport.ImmPortSubmissionStatusTask;
 import org.metadatacenter.submission.immport.ImmPortUtil;
@@ -149,7 +149,6 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
     }
 
     CloseableHttpResponse response = null;
-    CloseableHttpClient client = null;
 
     String workspaceUrl = immPortUtil.getWorkspaceUrl();
 
@@ -157,8 +156,7 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
       HttpGet get = new HttpGet(workspaceUrl);
       get.setHeader(HTTP_HEADER_AUTHORIZATION, HTTP_AUTH_HEADER_BEARER_PREFIX + immPortBearerToken.get());
       get.setHeader(HTTP_HEADER_ACCEPT, CONTENT_TYPE_APPLICATION_JSON);
-      client = HttpClientBuilder.create().build();
-      response = client.execute(get);
+      response = SubmissionHttpClient.getInstance().execute(HttpUpstream.IMMPORT, get);
 
       if (response.getStatusLine().getStatusCode() == 200) {
         HttpEntity entity = response.getEntity();
@@ -173,7 +171,6 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
       return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build(); // TODO CEDAR error response
     } finally {
       HttpClientUtils.closeQuietly(response);
-      HttpClientUtils.closeQuietly(client);
     }
   }
 
@@ -192,7 +189,6 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
     }
 
     CloseableHttpResponse response = null;
-    CloseableHttpClient client = null;
 
     try {
       if (ServletFileUpload.isMultipartContent(request)) {
@@ -219,8 +215,7 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
           post.setHeader(HTTP_HEADER_AUTHORIZATION, HTTP_AUTH_HEADER_BEARER_PREFIX + immPortBearerToken.get());
           post.setHeader(HTTP_HEADER_ACCEPT, CONTENT_TYPE_APPLICATION_JSON);
           post.setEntity(multiPartEntity);
-          client = HttpClientBuilder.create().build();
-          response = client.execute(post);
+          response = SubmissionHttpClient.getInstance().execute(HttpUpstream.IMMPORT_UPLOAD, post);
           int statusCode = response.getStatusLine().getStatusCode();
 
           if (statusCode == Response.Status.OK.getStatusCode()) {
@@ -252,7 +247,6 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
       return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build(); // TODO CEDAR error response
     } finally {
       HttpClientUtils.closeQuietly(response);
-      HttpClientUtils.closeQuietly(client);
     }
   }
 
@@ -278,7 +272,6 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
     }
 
     CloseableHttpResponse response = null;
-    CloseableHttpClient client = null;
 
     try {
       if (ServletFileUpload.isMultipartContent(request)) {
@@ -289,8 +282,7 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
         post.setHeader(HTTP_HEADER_AUTHORIZATION, HTTP_AUTH_HEADER_BEARER_PREFIX + immPortBearerToken.get());
         post.setHeader(HTTP_HEADER_ACCEPT, CONTENT_TYPE_APPLICATION_JSON);
         post.setEntity(multiPartEntity);
-        client = HttpClientBuilder.create().build();
-        response = client.execute(post);
+        response = SubmissionHttpClient.getInstance().execute(HttpUpstream.IMMPORT_UPLOAD, post);
 
         int statusCode = response.getStatusLine().getStatusCode();
 
@@ -318,7 +310,6 @@ public class ImmPortSubmissionServerResource extends CedarMicroserviceResource {
       return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build(); // TODO CEDAR error response
     } finally {
       HttpClientUtils.closeQuietly(response);
-      HttpClientUtils.closeQuietly(client);
     }
   }
 
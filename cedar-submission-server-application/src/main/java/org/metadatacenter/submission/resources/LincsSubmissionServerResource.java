@@ -4,15 +4,20 @@ import com.codahale.metrics.annotation.Timed;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.fluent.Request;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.metadatacenter.cedar.util.dw.CedarMicroserviceResource;
 import org.metadatacenter.config.CedarConfig;
-import org.metadatacenter.constant.HttpConnectionConstants;
 import org.metadatacenter.error.CedarErrorKey;
 import org.metadatacenter.exception.CedarException;
 import org.metadatacenter.exception.CedarProcessingException;
 import org.metadatacenter.rest.context.CedarRequestContext;
+import org.metadatacenter.submission.http.HttpUpstream;
+import org.metadatacenter.submission.http.SubmissionHttpClient;
 import org.metadatacenter.util.http.CedarResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,15 +66,21 @@ public class LincsSubmissionServerResource extends CedarMicroserviceResource {
   }
 
   private HttpResponse sendPostRequestToLincsServer(String content) throws CedarProcessingException {
-    Request proxyRequest = Request.Post(LINCS_VALIDATION_ENDPOINT)
-        .connectTimeout(HttpConnectionConstants.CONNECTION_TIMEOUT)
-        .socketTimeout(HttpConnectionConstants.SOCKET_TIMEOUT)
-        .bodyString(content, ContentType.APPLICATION_JSON);
+    HttpPost proxyRequest = new HttpPost(LINCS_VALIDATION_ENDPOINT);
+    proxyRequest.setEntity(new StringEntity(content, ContentType.APPLICATION_JSON));
+    CloseableHttpResponse response = null;
     try {
-      return proxyRequest.execute().returnResponse();
+      response = SubmissionHttpClient.getInstance().execute(HttpUpstream.LINCS, proxyRequest);
+      // The body is forwarded after the connection has gone back to the pool
+      if (response.getEntity() != null) {
+        response.setEntity(new BufferedHttpEntity(response.getEntity()));
+      }
+      return response;
     } catch (IOException e) {
       logger.error(e.getMessage(), e);
       throw new CedarProcessingException(e);
+    } finally {
+      HttpClientUtils.closeQuietly(response);
     }
   }
 
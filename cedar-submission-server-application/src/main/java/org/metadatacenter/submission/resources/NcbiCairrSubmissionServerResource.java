@@ -3,7 +3,7 @@ package org.metadatacenter.submission.resources;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.joda.time.DateTimeZone;
@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.metadatacenter.rest.assertion.GenericAssertions.LoggedIn;
+import static org.metadatacenter.util.json.JsonMapper.MAPPER;
 
 /**
  * See here for submission instructions to NCBI:
@@ -53,6 +54,9 @@ import static org.metadatacenter.rest.assertion.GenericAssertions.LoggedIn;
 
   final static Logger logger = LoggerFactory.getLogger(NcbiCairrSubmissionServerResource.class);
 
+  private static final ObjectReader fileNamesReader = MAPPER.readerFor(new TypeReference<ArrayList<String>>() {
+  });
+
   private static NcbiSubmissionQueueService ncbiSubmissionQueueService;
 
   private final BioSampleValidator bioSampleValidator;
@@ -104,9 +108,7 @@ import static org.metadatacenter.rest.assertion.GenericAssertions.LoggedIn;
         if (userFileNames.isArray()) {
           List fileNames = null;
           try {
-            fileNames = new ObjectMapper().readValue(userFileNames.traverse(),
-                new TypeReference<ArrayList<String>>() {
-                });
+            fileNames = fileNamesReader.readValue(userFileNames);
           } catch (IOException e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
           }
@@ -209,7 +211,8 @@ import static org.metadatacenter.rest.assertion.GenericAssertions.LoggedIn;
           SubmissionUploadManager.getInstance().removeSubmissionStatus(data.getSubmissionId());
         }
 
-      } catch (IOException | FileUploadException | SubmissionInstanceNotFoundException | JAXBException | DatatypeConfigurationException e) {
+      } catch (IOException | FileUploadException | SubmissionInstanceNotFoundException | JAXBException |
+          DatatypeConfigurationException | ParseException e) {
         logger.error(e.getMessage(), e);
         return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
       } catch (IllegalAccessException e) {
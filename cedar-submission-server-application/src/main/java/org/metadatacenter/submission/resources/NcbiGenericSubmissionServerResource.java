@@ -3,7 +3,7 @@ package org.metadatacenter.submission.resources;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.joda.time.DateTimeZone;
@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.metadatacenter.rest.assertion.GenericAssertions.LoggedIn;
+import static org.metadatacenter.util.json.JsonMapper.MAPPER;
 
 @Path("/command")
 @Produces(MediaType.APPLICATION_JSON)
@@ -50,6 +51,9 @@ public class NcbiGenericSubmissionServerResource
 
   final static Logger logger = LoggerFactory.getLogger(NcbiGenericSubmissionServerResource.class);
 
+  private static final ObjectReader fileNamesReader = MAPPER.readerFor(new TypeReference<ArrayList<String>>() {
+  });
+
   private static NcbiSubmissionQueueService ncbiSubmissionQueueService;
 
   private final BioSampleValidator bioSampleValidator;
@@ -111,9 +115,7 @@ public class NcbiGenericSubmissionServerResource
         if (userFileNames.isArray()) {
           List fileNames = null;
           try {
-            fileNames = new ObjectMapper().readValue(userFileNames.traverse(),
-                new TypeReference<ArrayList<String>>() {
-                });
+            fileNames = fileNamesReader.readValue(userFileNames);
           } catch (IOException e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
           }
@@ -219,7 +221,8 @@ public class NcbiGenericSubmissionServerResource
           SubmissionUploadManager.getInstance().removeSubmissionStatus(data.getSubmissionId());
         }
 
-      } catch (IOException | FileUploadException | SubmissionInstanceNotFoundException | JAXBException | DatatypeConfigurationException e) {
+      } catch (IOException | FileUploadException | SubmissionInstanceNotFoundException | JAXBException |
+          DatatypeConfigurationException | ParseException e) {
         logger.error(e.getMessage(), e);
         return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
       } catch (IllegalAccessException e) {
@@ -0,0 +1,191 @@
+package org.metadatacenter.submission.resources;
+
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.glassfish.jersey.server.ChunkedOutput;
+import org.metadatacenter.cedar.util.dw.CedarMicroserviceResource;
+import org.metadatacenter.config.CedarConfig;
+import org.metadatacenter.exception.CedarException;
+import org.metadatacenter.rest.context.CedarRequestContext;
+import org.metadatacenter.submission.status.SubmissionStatus;
+import org.metadatacenter.submission.status.SubmissionStatusBroadcaster;
+import org.metadatacenter.submission.status.SubmissionStatusDescriptor;
+import org.metadatacenter.submission.status.SubmissionStatusManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.metadatacenter.rest.assertion.GenericAssertions.LoggedIn;
+import static org.metadatacenter.util.json.JsonMapper.MAPPER;
+
+/**
+ * Exposes the status of the submissions tracked by the {@link SubmissionStatusManager}. Instead of polling, clients
+ * can either long-poll a submission (conditional GET with If-None-Match and a wait time, answered as soon as the
+ * status changes) or open an event stream that receives the status changes of all their submissions.
+ */
+@Path("/command")
+@Produces(MediaType.APPLICATION_JSON)
+public class SubmissionStatusResource extends CedarMicroserviceResource {
+  private static final Logger logger = LoggerFactory.getLogger(SubmissionStatusResource.class);
+
+  // Upper bound of the wait time of a long-poll request
+  public static long MAX_WAIT = 60; // seconds
+
+  private static final String SERVER_SENT_EVENTS = "text/event-stream";
+
+  public SubmissionStatusResource(CedarConfig cedarConfig) {
+    super(cedarConfig);
+  }
+
+  @GET
+  @Timed
+  @Path("/submission-status")
+  public Response getSubmissionStatuses() throws CedarException {
+    CedarRequestContext c = buildRequestContext();
+    c.must(c.user()).be(LoggedIn);
+
+    String userKey = SubmissionStatusBroadcaster.getUserKey(c.getCedarUser().getId());
+    List<Map<String, Object>> statuses = new ArrayList<>();
+    for (SubmissionStatusDescriptor descriptor : SubmissionStatusManager.getInstance().getCurrentSubmissions()
+        .values()) {
+      if (userKey.equals(SubmissionStatusBroadcaster.getUserKey(descriptor.getUserID()))) {
+        statuses.add(toBody(descriptor));
+      }
+    }
+    return Response.ok(statuses).build();
+  }
+
+  /**
+   * Returns the status of a submission, or 304 if it matches the If-None-Match header. With a wait time (in seconds),
+   * a matching request is held until the status changes or the time is up.
+   */
+  @GET
+  @Timed
+  @Path("/submission-status/{id}")
+  public void getSubmissionStatus(@PathParam("id") String submissionID,
+                                  @QueryParam("wait") @DefaultValue("0") long wait,
+                                  @Context Request request,
+                                  @Suspended AsyncResponse asyncResponse) throws CedarException {
+    CedarRequestContext c = buildRequestContext();
+    c.must(c.user()).be(LoggedIn);
+    String userID = c.getCedarUser().getId();
+
+    SubmissionStatusDescriptor descriptor = getSubmission(submissionID, userID);
+    if (descriptor == null) {
+      asyncResponse.resume(Response.status(Response.Status.NOT_FOUND).build());
+      return;
+    }
+    EntityTag entityTag = getEntityTag(descriptor);
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+    if (notModified == null) {
+      asyncResponse.resume(toResponse(descriptor));
+      return;
+    }
+    if (wait <= 0) {
+      asyncResponse.resume(notModified.build());
+      return;
+    }
+
+    CompletableFuture<SubmissionStatusDescriptor> change =
+        SubmissionStatusBroadcaster.getInstance().awaitChange(submissionID);
+    // The status may have changed before we started waiting
+    SubmissionStatusDescriptor currentDescriptor = getSubmission(submissionID, userID);
+    if (currentDescriptor == null || !entityTag.equals(getEntityTag(currentDescriptor))) {
+      change.cancel(false);
+      asyncResponse.resume(currentDescriptor == null ? Response.status(Response.Status.NOT_FOUND).build() :
+          toResponse(currentDescriptor));
+      return;
+    }
+    asyncResponse.register((CompletionCallback) throwable -> change.cancel(false));
+    asyncResponse.setTimeoutHandler(response -> response.resume(Response.notModified(entityTag).build()));
+    asyncResponse.setTimeout(Math.min(wait, MAX_WAIT), TimeUnit.SECONDS);
+    change.thenAccept(newDescriptor -> asyncResponse.resume(toResponse(newDescriptor)));
+  }
+
+  /**
+   * Server-sent events stream with the current status of the user's submissions, followed by their status changes.
+   */
+  @GET
+  @Path("/submission-status/events")
+  @Produces(SERVER_SENT_EVENTS)
+  public ChunkedOutput<String> getSubmissionStatusEvents() throws CedarException {
+    CedarRequestContext c = buildRequestContext();
+    c.must(c.user()).be(LoggedIn);
+    String userID = c.getCedarUser().getId();
+
+    final ChunkedOutput<String> output = new ChunkedOutput<>(String.class);
+    String userKey = SubmissionStatusBroadcaster.getUserKey(userID);
+    // The current statuses are sent by the broadcaster, before the changes and on the same writer
+    Supplier<List<SubmissionStatusDescriptor>> currentSubmissions = () -> {
+      List<SubmissionStatusDescriptor> userSubmissions = new ArrayList<>();
+      for (SubmissionStatusDescriptor descriptor : SubmissionStatusManager.getInstance().getCurrentSubmissions()
+          .values()) {
+        if (userKey.equals(SubmissionStatusBroadcaster.getUserKey(descriptor.getUserID()))) {
+          userSubmissions.add(descriptor);
+        }
+      }
+      return userSubmissions;
+    };
+    SubmissionStatusBroadcaster.getInstance().subscribe(userID, new SubmissionStatusBroadcaster.Subscriber() {
+      @Override
+      public void onStatusChanged(SubmissionStatusDescriptor descriptor) throws IOException {
+        output.write(toEvent(descriptor));
+      }
+
+      @Override
+      public void ping() throws IOException {
+        output.write(": ping\n\n");
+      }
+
+      @Override
+      public void close() throws IOException {
+        output.close();
+      }
+    }, currentSubmissions);
+    return output;
+  }
+
+  private static SubmissionStatusDescriptor getSubmission(String submissionID, String userID) {
+    SubmissionStatusDescriptor descriptor = SubmissionStatusManager.getInstance().getSubmission(submissionID);
+    if (descriptor == null || !SubmissionStatusBroadcaster.getUserKey(userID)
+        .equals(SubmissionStatusBroadcaster.getUserKey(descriptor.getUserID()))) {
+      return null;
+    }
+    return descriptor;
+  }
+
+  private static EntityTag getEntityTag(SubmissionStatusDescriptor descriptor) {
+    SubmissionStatus submissionStatus = descriptor.getSubmissionStatus();
+    return new EntityTag(submissionStatus.getSubmissionState() + "-"
+        + Integer.toHexString(String.valueOf(submissionStatus.getStatusMessage()).hashCode()));
+  }
+
+  private static Response toResponse(SubmissionStatusDescriptor descriptor) {
+    return Response.ok(toBody(descriptor)).tag(getEntityTag(descriptor)).build();
+  }
+
+  private static Map<String, Object> toBody(SubmissionStatusDescriptor descriptor) {
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("submissionID", descriptor.getSubmissionID());
+    body.put("state", descriptor.getSubmissionStatus().getSubmissionState());
+    body.put("message", descriptor.getSubmissionStatus().getStatusMessage());
+    return body;
+  }
+
+  private static String toEvent(SubmissionStatusDescriptor descriptor) throws JsonProcessingException {
+    return "event: status\ndata: " + MAPPER.writeValueAsString(toBody(descriptor)) + "\n\n";
+  }
+}
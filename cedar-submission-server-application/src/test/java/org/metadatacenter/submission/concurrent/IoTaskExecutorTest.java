@@ -0,0 +1,97 @@
+package org.metadatacenter.submission.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IoTaskExecutorTest {
+
+  private static final int BLOCKING_TASKS = 1000;
+  private static final long BLOCKING_TIME = 10; // ms; stands for a status poll or a transfer waiting on the network
+
+  @Test
+  public void testPlatformConcurrency() throws Exception {
+    IoTaskExecutor executor = IoTaskExecutor.create("test-platform", 4, 4, ExecutionMode.PLATFORM);
+    Assert.assertEquals(ExecutionMode.PLATFORM, executor.getExecutionMode());
+    Assert.assertTrue(runBlockingTasks(executor, 100) <= 4);
+  }
+
+  @Test
+  public void testVirtualConcurrency() throws Exception {
+    // Falls back to 4 platform threads on runtimes without virtual threads; the bound is the same either way
+    IoTaskExecutor executor = IoTaskExecutor.create("test-virtual", 4, 4, ExecutionMode.VIRTUAL);
+    Assert.assertTrue(runBlockingTasks(executor, 100) <= 4);
+  }
+
+  /**
+   * Many more blocking tasks than the concurrency bound: they all complete, never more than the bound at once.
+   */
+  @Test
+  public void testBlockingTasksComplete() throws Exception {
+    IoTaskExecutor executor = IoTaskExecutor.create("test-blocking", 10, 10, ExecutionMode.VIRTUAL);
+    Assert.assertEquals(10, executor.getMaxConcurrency());
+    Assert.assertTrue(runBlockingTasks(executor, BLOCKING_TASKS) <= 10);
+  }
+
+  /**
+   * Up to the concurrency bound, blocked tasks do not prevent the others from running.
+   */
+  @Test
+  public void testConcurrencyBoundIsReached() throws Exception {
+    IoTaskExecutor executor = IoTaskExecutor.create("test-bound", 10, 10, ExecutionMode.VIRTUAL);
+    CountDownLatch allRunning = new CountDownLatch(10);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(executor.submit(() -> {
+          allRunning.countDown();
+          return allRunning.await(5, TimeUnit.SECONDS);
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        Assert.assertTrue(future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * @return the max. number of tasks that were running at once
+   */
+  private static int runBlockingTasks(ExecutorService executor, int tasks) throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger completed = new AtomicInteger();
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < tasks; i++) {
+        futures.add(executor.submit(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(BLOCKING_TIME);
+          } finally {
+            running.decrementAndGet();
+          }
+          completed.incrementAndGet();
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertEquals(0, running.get());
+    Assert.assertEquals(tasks, completed.get());
+    return maxRunning.get();
+  }
+}
@@ -0,0 +1,41 @@
+package org.metadatacenter.submission.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenBucketTest {
+
+  private final AtomicLong now = new AtomicLong(1000); // ms
+
+  @Test
+  public void testReservationDelays() {
+    TokenBucket tokenBucket = new TokenBucket(10, 5, now::get); // a token every 100 ms
+    for (int i = 0; i < 5; i++) { // the burst is available right away
+      Assert.assertEquals(0, tokenBucket.reserve());
+    }
+    // The next tokens are reserved in advance, each one 100 ms after the previous one
+    Assert.assertEquals(100, tokenBucket.reserve());
+    Assert.assertEquals(200, tokenBucket.reserve());
+    Assert.assertEquals(300, tokenBucket.reserve());
+    // Time passing brings the reserved tokens closer
+    now.addAndGet(250);
+    Assert.assertEquals(150, tokenBucket.reserve());
+  }
+
+  @Test
+  public void testRefill() {
+    TokenBucket tokenBucket = new TokenBucket(100, 2, now::get); // a token every 10 ms
+    Assert.assertEquals(0, tokenBucket.reserve());
+    Assert.assertEquals(0, tokenBucket.reserve());
+    Assert.assertEquals(10, tokenBucket.reserve());
+    now.addAndGet(10); // the reserved token is now due
+    Assert.assertEquals(10, tokenBucket.reserve());
+    // Refilled up to the burst, not beyond
+    now.addAndGet(1000);
+    Assert.assertEquals(0, tokenBucket.reserve());
+    Assert.assertEquals(0, tokenBucket.reserve());
+    Assert.assertEquals(10, tokenBucket.reserve());
+  }
+}
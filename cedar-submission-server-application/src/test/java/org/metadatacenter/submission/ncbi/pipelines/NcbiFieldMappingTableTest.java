@@ -0,0 +1,91 @@
+package org.metadatacenter.submission.ncbi.pipelines;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.metadatacenter.submission.ncbi.pipelines.NcbiFieldMapping.optional;
+
+public class NcbiFieldMappingTableTest {
+
+  private static final int FIELDS = 40; // about the size of the CAIRR BioSample table
+
+  @Test
+  public void testApply() {
+    NcbiFieldMappingTable table = NcbiFieldMappingTable.compile(
+        optional("Organism", "organism"),
+        optional("Sex", "sex"),
+        optional("Age", "age"),
+        optional("Tissue", "tissue"));
+    ObjectNode sample = JsonNodeFactory.instance.objectNode();
+    sample.set("Tissue", field("@value", "blood"));
+    sample.set("Organism", field("@id", "http://purl.obolibrary.org/obo/NCBITaxon_9606"));
+    sample.set("Age", field("@value", ""));
+    List<String> attributes = new ArrayList<>();
+    table.apply(sample, (attributeName, value) -> attributes.add(attributeName + "=" + value));
+    // In table order, without the fields that are missing or empty
+    Assert.assertEquals(2, attributes.size());
+    Assert.assertEquals("organism=http://purl.obolibrary.org/obo/NCBITaxon_9606", attributes.get(0));
+    Assert.assertEquals("tissue=blood", attributes.get(1));
+  }
+
+  /**
+   * The table writes the same attributes, in the same order, as one getTemplateFieldValue lookup per field, as the
+   * converters did before.
+   */
+  @Test
+  public void testSameAttributesAsFieldByField() {
+    NcbiFieldMapping[] mappings = new NcbiFieldMapping[FIELDS];
+    ObjectNode sample = JsonNodeFactory.instance.objectNode();
+    for (int i = 0; i < FIELDS; i++) {
+      String fieldName = "Field " + i;
+      mappings[i] = optional(fieldName, "attribute_" + i);
+      switch (i % 8) {
+        case 0: // missing
+          break;
+        case 1:
+          sample.set(fieldName, field("@value", "value " + i));
+          break;
+        case 2:
+          sample.set(fieldName, field("@id", "http://purl.obolibrary.org/obo/UBERON_" + i));
+          break;
+        case 3: // the @value wins over the @id
+          sample.set(fieldName, field("@value", "value " + i).put("@id", "http://example.org/" + i));
+          break;
+        case 4: // an empty @value falls back to the @id
+          sample.set(fieldName, field("@value", "").put("@id", "http://example.org/" + i));
+          break;
+        case 5:
+          sample.set(fieldName, field("@value", "").put("@id", ""));
+          break;
+        case 6:
+          sample.set(fieldName, JsonNodeFactory.instance.objectNode().putNull("@value"));
+          break;
+        default:
+          sample.set(fieldName, JsonNodeFactory.instance.nullNode());
+      }
+    }
+    NcbiFieldMappingTable table = NcbiFieldMappingTable.compile(mappings);
+
+    List<String> tableAttributes = new ArrayList<>();
+    table.apply(sample, (attributeName, value) -> tableAttributes.add(attributeName + "=" + value));
+    List<String> fieldByFieldAttributes = new ArrayList<>();
+    for (NcbiFieldMapping mapping : mappings) {
+      Optional<String> value = NcbiPipelinesCommonUtil.getTemplateFieldValue(sample, mapping.getFieldName());
+      value.ifPresent(v -> fieldByFieldAttributes.add(mapping.getAttributeName() + "=" + v));
+    }
+    Assert.assertEquals(FIELDS / 8 * 4, fieldByFieldAttributes.size());
+    Assert.assertEquals(fieldByFieldAttributes, tableAttributes);
+  }
+
+  private static ObjectNode field(String key, String value) {
+    ObjectNode field = JsonNodeFactory.instance.objectNode();
+    field.put(key, value);
+    return field;
+  }
+}
@@ -0,0 +1,64 @@
+package org.metadatacenter.submission.ncbi.pipelines;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.metadatacenter.submission.ncbi.pipelines.NcbiSubmissionXMLCache.DEFAULT_MAX_ENTRIES;
+import static org.metadatacenter.submission.ncbi.pipelines.NcbiSubmissionXMLCache.DEFAULT_MAX_ENTRY_SIZE;
+import static org.metadatacenter.submission.ncbi.pipelines.NcbiSubmissionXMLCache.DEFAULT_MAX_SIZE;
+import static org.metadatacenter.submission.ncbi.pipelines.NcbiSubmissionXMLCache.DEFAULT_TTL;
+
+public class NcbiSubmissionXMLCacheTest {
+
+  private final AtomicLong now = new AtomicLong(1000); // ms
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    NcbiSubmissionXMLCache cache = new NcbiSubmissionXMLCache(3, DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE, DEFAULT_TTL,
+        now::get);
+    cache.put("a", new byte[10]);
+    cache.put("b", new byte[10]);
+    cache.put("c", new byte[10]);
+    Assert.assertNotNull(cache.get("a")); // 'b' is now the least recently used
+    cache.put("d", new byte[10]);
+    Assert.assertEquals(3, cache.size());
+    Assert.assertNull(cache.get("b"));
+    Assert.assertNotNull(cache.get("a"));
+    Assert.assertNotNull(cache.get("c"));
+    Assert.assertNotNull(cache.get("d"));
+  }
+
+  @Test
+  public void testMaxSizeEviction() {
+    NcbiSubmissionXMLCache cache = new NcbiSubmissionXMLCache(DEFAULT_MAX_ENTRIES, 100, 60, DEFAULT_TTL, now::get);
+    cache.put("a", new byte[40]);
+    cache.put("b", new byte[40]);
+    cache.put("a", new byte[50]); // replaced: only counted once
+    Assert.assertEquals(2, cache.size());
+    cache.put("c", new byte[30]); // 120 bytes: the least recently used entry goes
+    Assert.assertNull(cache.get("b"));
+    Assert.assertEquals(50, cache.get("a").length);
+    Assert.assertNotNull(cache.get("c"));
+    cache.put("d", new byte[61]); // too large to be cached
+    Assert.assertNull(cache.get("d"));
+    Assert.assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testTtlEviction() {
+    NcbiSubmissionXMLCache cache = new NcbiSubmissionXMLCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_SIZE,
+        DEFAULT_MAX_ENTRY_SIZE, 300, now::get);
+    cache.put("a", new byte[10]);
+    now.addAndGet(200);
+    cache.put("b", new byte[10]);
+    Assert.assertNotNull(cache.get("a")); // a hit does not extend the TTL
+    now.addAndGet(100);
+    Assert.assertNotNull(cache.get("a")); // exactly ttl ms old
+    now.addAndGet(1);
+    Assert.assertNull(cache.get("a"));
+    Assert.assertNotNull(cache.get("b"));
+    Assert.assertEquals(1, cache.size());
+  }
+}
@@ -0,0 +1,133 @@
+package org.metadatacenter.submission.ncbi.pipelines.cairr;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiInstanceReader;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiSubmissionXMLCache;
+import org.metadatacenter.util.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class NcbiCairrTemplateInstance2XMLConverterTest {
+
+  private static final int CONCURRENT_CONVERSIONS = 64;
+  private static final int SAMPLES = 600; // above the parallel conversion threshold
+
+  @Test
+  public void testConcurrentConversions() throws Exception {
+    NcbiCairrTemplateInstance2XMLConverter converter = new NcbiCairrTemplateInstance2XMLConverter();
+    JsonNode instance = createInstance(SAMPLES);
+    // The stream conversion does not fill the XML cache, so each call below is a full conversion
+    String expectedXml = convert(converter, instance);
+    Assert.assertEquals(2 * SAMPLES, expectedXml.split("<Action[ >]", -1).length - 1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CONVERSIONS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<String>> conversions = new ArrayList<>();
+      for (int i = 0; i < CONCURRENT_CONVERSIONS; i++) {
+        conversions.add(executor.submit(() -> {
+          start.await();
+          return convert(converter, instance);
+        }));
+      }
+      start.countDown();
+      for (Future<String> conversion : conversions) {
+        Assert.assertEquals(expectedXml, conversion.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCachedConversion() throws Exception {
+    NcbiCairrTemplateInstance2XMLConverter converter = new NcbiCairrTemplateInstance2XMLConverter();
+    JsonNode instance = createInstance(10);
+    String xml = convert(converter, instance);
+    Assert.assertEquals(xml, converter.convertTemplateInstanceToXML(instance));
+    Assert.assertEquals(xml, converter.convertTemplateInstanceToXML(instance.deepCopy()));
+
+    // Ids are derived from the content, so another instance gets other ids
+    ObjectNode otherInstance = (ObjectNode) createInstance(10);
+    otherInstance.set(NcbiCairrConstants.SUBMISSION_RELEASE_DATE_FIELD, field("2030-02-28"));
+    String otherXml = converter.convertTemplateInstanceToXML(otherInstance);
+    String actionId = xml.replaceFirst("(?s).*?(Action-[0-9a-f-]{36}).*", "$1");
+    Assert.assertTrue(actionId.startsWith("Action-"));
+    Assert.assertFalse(otherXml.contains(actionId));
+  }
+
+  @Test
+  public void testInstanceReader() throws Exception {
+    ObjectNode instance = (ObjectNode) createInstance(10);
+    instance.putObject(NcbiInstanceReader.CONTEXT_FIELD).put("schema", "http://schema.org/");
+    instance.put("schema:name", "Test instance");
+    ((ObjectNode) instance.get(NcbiCairrConstants.BIOPROJECT_ELEMENT)).putObject(NcbiInstanceReader.CONTEXT_FIELD)
+        .put("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
+
+    JsonNode readInstance = new NcbiInstanceReader(NcbiCairrConstants.INSTANCE_SECTIONS)
+        .read(new ByteArrayInputStream(JsonMapper.MAPPER.writeValueAsBytes(instance)));
+    Assert.assertFalse(readInstance.has(NcbiInstanceReader.CONTEXT_FIELD));
+    Assert.assertFalse(readInstance.has("schema:name"));
+    Assert.assertFalse(readInstance.get(NcbiCairrConstants.BIOPROJECT_ELEMENT).has(NcbiInstanceReader.CONTEXT_FIELD));
+    Assert.assertEquals(instance.get(NcbiCairrConstants.SRA_ELEMENT), readInstance.get(NcbiCairrConstants.SRA_ELEMENT));
+    // The XML cached when the full instance is validated is reused when the submission reads it
+    Assert.assertEquals(NcbiSubmissionXMLCache.hash(instance, NcbiCairrConstants.INSTANCE_SECTIONS),
+        NcbiSubmissionXMLCache.hash(readInstance, NcbiCairrConstants.INSTANCE_SECTIONS));
+  }
+
+  private static String convert(NcbiCairrTemplateInstance2XMLConverter converter, JsonNode instance) throws
+      Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    converter.convertTemplateInstanceToXML(instance, outputStream, true);
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static JsonNode createInstance(int samples) {
+    JsonNodeFactory factory = JsonNodeFactory.instance;
+    ObjectNode instance = factory.objectNode();
+    instance.set(NcbiCairrConstants.SUBMISSION_RELEASE_DATE_FIELD, field("2030-01-31"));
+
+    ObjectNode bioProject = factory.objectNode();
+    bioProject.set(NcbiCairrConstants.BIOPROJECT_STUDY_ID_FIELD, field("PRJNA000001"));
+    bioProject.set(NcbiCairrConstants.BIOPROJECT_CONTACT_INFO_FIELD, field("contact@example.org"));
+    bioProject.set(NcbiCairrConstants.BIOPROJECT_LAB_NAME_FIELD, field("Test Lab"));
+    instance.set(NcbiCairrConstants.BIOPROJECT_ELEMENT, bioProject);
+
+    ArrayNode bioSamples = instance.putArray(NcbiCairrConstants.BIOSAMPLE_ELEMENT);
+    ArrayNode sras = instance.putArray(NcbiCairrConstants.SRA_ELEMENT);
+    for (int i = 0; i < samples; i++) {
+      String sampleID = "sample-" + i;
+      ObjectNode bioSample = bioSamples.addObject();
+      bioSample.set(NcbiCairrConstants.BIOSAMPLE_SAMPLE_ID_FIELD, field(sampleID));
+      bioSample.set(NcbiCairrConstants.BIOSAMPLE_ORGANISM_FIELD, field("Homo sapiens"));
+      bioSample.set(NcbiCairrConstants.BIOSAMPLE_SEX_FIELD, field(i % 2 == 0 ? "female" : "male"));
+
+      ObjectNode sra = sras.addObject();
+      sra.set(NcbiCairrConstants.SRA_SAMPLE_ID_FIELD, field(sampleID));
+      sra.set(NcbiCairrConstants.SRA_LIBRARY_STRATEGY_FIELD, field("AMPLICON"));
+      sra.set(NcbiCairrConstants.SRA_FILE_TYPE_FIELD, field("fastq"));
+      sra.putArray(NcbiCairrConstants.SRA_FILE_NAME_FIELD).add("File 1");
+      sra.set("File 1", field(sampleID + ".fastq"));
+    }
+    return instance;
+  }
+
+  private static ObjectNode field(String value) {
+    ObjectNode field = JsonNodeFactory.instance.objectNode();
+    field.put("@value", value);
+    return field;
+  }
+}
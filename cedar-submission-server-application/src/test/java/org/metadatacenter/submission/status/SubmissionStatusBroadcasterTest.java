@@ -0,0 +1,107 @@
+package org.metadatacenter.submission.status;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SubmissionStatusBroadcasterTest {
+
+  @Test
+  public void testStalledSubscriberIsDisconnected() throws Exception {
+    SubmissionStatusBroadcaster broadcaster = SubmissionStatusBroadcaster.getInstance();
+    String userID = "https://metadatacenter.org/users/stalled";
+    CountDownLatch stall = new CountDownLatch(1);
+    CountDownLatch closed = new CountDownLatch(1);
+    RecordingSubscriber stalledSubscriber = new RecordingSubscriber(stall, closed);
+    RecordingSubscriber subscriber = new RecordingSubscriber(null, new CountDownLatch(1));
+    broadcaster.subscribe(userID, stalledSubscriber);
+    broadcaster.subscribe(userID, subscriber);
+    try {
+      // The first event blocks the stalled subscriber. The status changes are reported without waiting for it, until
+      // its queue is full
+      long start = System.nanoTime();
+      int changes = SubmissionStatusBroadcaster.SUBSCRIBER_QUEUE_SIZE + 2;
+      for (int i = 0; i < changes; i++) {
+        broadcaster.onStatusChanged(createDescriptor(userID, "submission-" + i));
+      }
+      Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+      Assert.assertTrue(closed.await(5, TimeUnit.SECONDS));
+
+      // The other subscriber of the same user gets all the changes, in order
+      long deadline = System.currentTimeMillis() + 5000;
+      while (subscriber.submissionIDs.size() < changes && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals(changes, subscriber.submissionIDs.size());
+      for (int i = 0; i < changes; i++) {
+        Assert.assertEquals("submission-" + i, subscriber.submissionIDs.get(i));
+      }
+    } finally {
+      stall.countDown();
+      broadcaster.unsubscribe(userID, subscriber);
+    }
+  }
+
+  @Test
+  public void testInitialEventsAreWrittenBeforeChanges() throws Exception {
+    SubmissionStatusBroadcaster broadcaster = SubmissionStatusBroadcaster.getInstance();
+    String userID = "https://metadatacenter.org/users/initial";
+    RecordingSubscriber subscriber = new RecordingSubscriber(null, new CountDownLatch(1));
+    // A change reported while the initial events are being read is written after them
+    broadcaster.subscribe(userID, subscriber, () -> {
+      broadcaster.onStatusChanged(createDescriptor(userID, "change"));
+      return Arrays.asList(createDescriptor(userID, "initial-0"), createDescriptor(userID, "initial-1"));
+    });
+    try {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (subscriber.submissionIDs.size() < 3 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals(Arrays.asList("initial-0", "initial-1", "change"), subscriber.submissionIDs);
+    } finally {
+      broadcaster.unsubscribe(userID, subscriber);
+    }
+  }
+
+  private static SubmissionStatusDescriptor createDescriptor(String userID, String submissionID) {
+    SubmissionStatus submissionStatus = new SubmissionStatus(submissionID, SubmissionState.PROCESSING, "processing");
+    return new SubmissionStatusDescriptor(submissionID, userID, null, submissionStatus, null);
+  }
+
+  private static class RecordingSubscriber implements SubmissionStatusBroadcaster.Subscriber {
+    private final CountDownLatch stall;
+    private final CountDownLatch closed;
+    private final List<String> submissionIDs = new CopyOnWriteArrayList<>();
+
+    private RecordingSubscriber(CountDownLatch stall, CountDownLatch closed) {
+      this.stall = stall;
+      this.closed = closed;
+    }
+
+    @Override
+    public void onStatusChanged(SubmissionStatusDescriptor submissionStatusDescriptor) {
+      if (stall != null) {
+        try {
+          stall.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      submissionIDs.add(submissionStatusDescriptor.getSubmissionID());
+    }
+
+    @Override
+    public void ping() {
+    }
+
+    @Override
+    public void close() {
+      closed.countDown();
+    }
+  }
+}
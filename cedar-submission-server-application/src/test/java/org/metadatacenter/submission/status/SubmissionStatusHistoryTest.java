@@ -0,0 +1,48 @@
+package org.metadatacenter.submission.status;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SubmissionStatusHistoryTest {
+
+  private final AtomicLong now = new AtomicLong(1000); // ms
+
+  @Test
+  public void testMaxSizeEviction() {
+    SubmissionStatusHistory history = new SubmissionStatusHistory(3, SubmissionStatusHistory.DEFAULT_TTL, now::get);
+    history.add("user", createStatus("s1"));
+    history.add("user", createStatus("s2"));
+    history.add("user", createStatus("s3"));
+    history.add("user", createStatus("s1")); // completed again, so now the most recent
+    history.add("user", createStatus("s4"));
+    Assert.assertEquals(3, history.size());
+    Assert.assertNull(history.get("s2")); // the oldest completion goes first
+    Assert.assertNotNull(history.get("s1"));
+    Assert.assertNotNull(history.get("s3"));
+    Assert.assertEquals("user", history.get("s4").getUserID());
+  }
+
+  @Test
+  public void testTtlEviction() {
+    SubmissionStatusHistory history = new SubmissionStatusHistory(SubmissionStatusHistory.DEFAULT_MAX_SIZE, 300,
+        now::get);
+    history.add("user", createStatus("s1"));
+    now.addAndGet(200);
+    history.add("user", createStatus("s2"));
+    now.addAndGet(100);
+    Assert.assertNotNull(history.get("s1")); // exactly ttl ms old
+    now.addAndGet(1);
+    Assert.assertNull(history.get("s1"));
+    Assert.assertNotNull(history.get("s2"));
+    Assert.assertEquals(1, history.size());
+    now.addAndGet(200);
+    Assert.assertNull(history.get("s2"));
+    Assert.assertEquals(0, history.size());
+  }
+
+  private static SubmissionStatus createStatus(String submissionID) {
+    return new SubmissionStatus(submissionID, SubmissionState.SUCCEEDED, "succeeded");
+  }
+}
@@ -0,0 +1,76 @@
+package org.metadatacenter.submission.status;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class SubmissionStatusSchedulerTest {
+
+  private long minCheckInterval;
+  private long maxCheckInterval;
+  private SubmissionStatusScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    minCheckInterval = SubmissionStatusScheduler.MIN_CHECK_INTERVAL;
+    maxCheckInterval = SubmissionStatusScheduler.MAX_CHECK_INTERVAL;
+    SubmissionStatusScheduler.MIN_CHECK_INTERVAL = 10;
+    SubmissionStatusScheduler.MAX_CHECK_INTERVAL = 80;
+    scheduler = new SubmissionStatusScheduler();
+  }
+
+  @After
+  public void tearDown() {
+    SubmissionStatusScheduler.MIN_CHECK_INTERVAL = minCheckInterval;
+    SubmissionStatusScheduler.MAX_CHECK_INTERVAL = maxCheckInterval;
+  }
+
+  @Test
+  public void testBackoff() throws Exception {
+    scheduler.schedule("submission");
+    SubmissionStatusScheduler.ScheduledCheck check = scheduler.take();
+    Assert.assertEquals(10, check.getInterval());
+    // The interval doubles while the status does not change, up to the max. interval
+    long[] expectedIntervals = {20, 40, 80, 80};
+    for (long expectedInterval : expectedIntervals) {
+      long start = System.nanoTime();
+      scheduler.reschedule("submission", check.getInterval(), false);
+      check = scheduler.take();
+      Assert.assertEquals(expectedInterval, check.getInterval());
+      Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= expectedInterval - 1);
+    }
+    // A new status brings it back to the min. interval
+    scheduler.reschedule("submission", check.getInterval(), true);
+    Assert.assertEquals(10, scheduler.take().getInterval());
+  }
+
+  @Test
+  public void testLoadFactor() throws Exception {
+    long start = System.nanoTime();
+    scheduler.reschedule("submission", 10, false, 3);
+    SubmissionStatusScheduler.ScheduledCheck check = scheduler.take();
+    // The check is delayed, but the backoff continues from the unstretched interval
+    Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 60 - 1);
+    Assert.assertEquals(20, check.getInterval());
+    // The delay is capped
+    start = System.nanoTime();
+    scheduler.reschedule("submission", 40, false, 8);
+    scheduler.take();
+    long delay = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertTrue("delay " + delay, delay >= 80 - 1 && delay < 640);
+  }
+
+  @Test
+  public void testCancelledChecksAreSkipped() throws Exception {
+    scheduler.schedule("cancelled");
+    scheduler.schedule("rescheduled");
+    scheduler.cancel("cancelled");
+    scheduler.reschedule("rescheduled", 10, false); // replaces its first check
+    Assert.assertEquals("rescheduled", scheduler.take().getSubmissionID());
+    scheduler.schedule("other");
+    Assert.assertEquals("other", scheduler.take().getSubmissionID());
+  }
+}
@@ -0,0 +1,43 @@
+package org.metadatacenter.submission.status;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class SubmissionStatusTaskTest {
+
+  @Test
+  public void testCancelInterruptsCall() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    SubmissionStatusTask task = new SubmissionStatusTask("submission", SubmissionType.IMMPORT, "user", null) {
+      @Override
+      protected SubmissionStatus callSubmissionStatusEndpoint() throws Exception {
+        started.countDown();
+        try {
+          Thread.sleep(60000); // stands for a hung call
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+          throw e;
+        }
+        return null;
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      CompletableFuture<SubmissionStatus> call = task.callAsync(executor);
+      Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+      call.cancel(true);
+      Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+      // The thread is free for the next check
+      Assert.assertEquals("next", executor.submit(() -> "next").get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package org.metadatacenter.submission.status;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class SubmissionStatusThrottleTest {
+
+  private ScheduledExecutorService timer;
+  private SubmissionStatusThrottle throttle;
+
+  @Before
+  public void setUp() {
+    timer = Executors.newSingleThreadScheduledExecutor();
+    throttle = new SubmissionStatusThrottle(timer);
+  }
+
+  @After
+  public void tearDown() {
+    timer.shutdownNow();
+  }
+
+  @Test
+  public void testLoadFactorBounds() {
+    Assert.assertEquals(1, throttle.getLoadFactor(SubmissionType.NCBI), 0);
+    throttle.recordSuccess(SubmissionType.NCBI);
+    Assert.assertEquals(1, throttle.getLoadFactor(SubmissionType.NCBI), 0);
+    for (int i = 0; i < 10; i++) {
+      throttle.recordFailure(SubmissionType.NCBI);
+    }
+    Assert.assertEquals(SubmissionStatusThrottle.MAX_LOAD_FACTOR, throttle.getLoadFactor(SubmissionType.NCBI), 0);
+    // Each upstream has its own load factor
+    Assert.assertEquals(1, throttle.getLoadFactor(SubmissionType.IMMPORT), 0);
+  }
+
+  @Test
+  public void testLoadFactorDecay() {
+    throttle.recordFailure(SubmissionType.IMMPORT);
+    double loadFactor = throttle.getLoadFactor(SubmissionType.IMMPORT);
+    Assert.assertEquals(SubmissionStatusThrottle.FAILURE_LOAD_INCREASE, loadFactor, 0);
+    // Successes bring it back down gradually, then no lower than 1
+    int successes = 0;
+    while (loadFactor > 1) {
+      throttle.recordSuccess(SubmissionType.IMMPORT);
+      double previousLoadFactor = loadFactor;
+      loadFactor = throttle.getLoadFactor(SubmissionType.IMMPORT);
+      Assert.assertTrue(loadFactor < previousLoadFactor);
+      successes++;
+    }
+    Assert.assertEquals(1, loadFactor, 0);
+    Assert.assertEquals(7, successes); // 2 * 0.9^6 > 1 > 2 * 0.9^7
+  }
+}
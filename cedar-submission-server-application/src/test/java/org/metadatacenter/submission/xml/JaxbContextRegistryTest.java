@@ -0,0 +1,98 @@
+package org.metadatacenter.submission.xml;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class JaxbContextRegistryTest {
+
+  private static final int DOCUMENTS = 200;
+
+  @Test
+  public void testContextIsBuiltOnce() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<JAXBContext>> contexts = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        contexts.add(executor.submit(() -> JaxbContextRegistry.getContext(TestDocument.class)));
+      }
+      JAXBContext context = JaxbContextRegistry.getContext(TestDocument.class);
+      for (Future<JAXBContext> otherContext : contexts) {
+        Assert.assertSame(context, otherContext.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    String xml = JaxbContextRegistry.marshal(new TestDocument("sample"), false);
+    TestDocument document = JaxbContextRegistry.unmarshal(TestDocument.class,
+        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals("sample", document.name);
+  }
+
+  /**
+   * Round trips on several threads at once, sharing the pooled marshallers and unmarshallers, give the same output as
+   * a marshaller of its own for every document.
+   */
+  @Test
+  public void testConcurrentRoundTrips() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < DOCUMENTS; i++) {
+        String name = "sample-" + i;
+        boolean formatted = i % 2 == 0;
+        futures.add(executor.submit(() -> {
+          String xml = JaxbContextRegistry.marshal(new TestDocument(name), formatted);
+          Assert.assertEquals(marshalWithNewContext(new TestDocument(name), formatted), xml);
+          TestDocument document = JaxbContextRegistry.unmarshal(TestDocument.class,
+              new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+          Assert.assertEquals(name, document.name);
+          Assert.assertEquals(xml, JaxbContextRegistry.marshal(document, formatted));
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static String marshalWithNewContext(TestDocument document, boolean formatted) throws Exception {
+    StringWriter writer = new StringWriter();
+    Marshaller marshaller = JAXBContext.newInstance(TestDocument.class).createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+    marshaller.marshal(document, writer);
+    return writer.toString();
+  }
+
+  @XmlRootElement(name = "testDocument")
+  public static class TestDocument {
+    @XmlElement
+    public String name;
+
+    public TestDocument() {
+    }
+
+    public TestDocument(String name) {
+      this.name = name;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package org.metadatacenter.submission.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of asynchronous operations in flight against an upstream service. Operations over the limit are
+ * queued and started as running ones complete, so waiting for a slot does not hold any thread.
+ */
+public class AsyncConcurrencyLimiter {
+
+  private final int maxConcurrency;
+  private final Queue<Runnable> pending = new ArrayDeque<>(); // guarded by 'this'
+  private int running; // guarded by 'this'
+
+  public AsyncConcurrencyLimiter(int maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  /**
+   * Start the operation now if a slot is free, or once one is.
+   *
+   * @return completes with the result of the operation
+   */
+  public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> operation) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Runnable start = () -> {
+      CompletableFuture<T> future;
+      try {
+        future = operation.get();
+      } catch (RuntimeException e) {
+        future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+      }
+      future.whenComplete((value, e) -> {
+        release();
+        if (e != null) {
+          result.completeExceptionally(e);
+        } else {
+          result.complete(value);
+        }
+      });
+    };
+    boolean startNow;
+    synchronized (this) {
+      startNow = running < maxConcurrency;
+      if (startNow) {
+        running++;
+      } else {
+        pending.add(start);
+      }
+    }
+    if (startNow) {
+      start.run();
+    }
+    return result;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public synchronized int getRunning() {
+    return running;
+  }
+
+  public synchronized int getPending() {
+    return pending.size();
+  }
+
+  private void release() {
+    Runnable next;
+    synchronized (this) {
+      next = pending.poll();
+      if (next == null) {
+        running--;
+      }
+    }
+    if (next != null) { // the slot goes straight to the next operation
+      next.run();
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package org.metadatacenter.submission.concurrent;
+
+public enum ExecutionMode {
+  PLATFORM("platform"), VIRTUAL("virtual");
+
+  private final String value;
+
+  ExecutionMode(String value) {
+    this.value = value;
+  }
+
+  public static ExecutionMode fromString(String mode) {
+    for (ExecutionMode m : ExecutionMode.values()) {
+      if (m.getValue().equalsIgnoreCase(mode)) {
+        return m;
+      }
+    }
+    return PLATFORM;
+  }
+
+  public String getValue() {
+    return value;
+  }
+}
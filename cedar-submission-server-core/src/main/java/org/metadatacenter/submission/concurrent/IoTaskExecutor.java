@@ -0,0 +1,137 @@
+package org.metadatacenter.submission.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for the blocking I/O stages of the submission pipeline (FTP sessions, HTTP calls, Redis commands).
+ * <p>
+ * In {@link ExecutionMode#VIRTUAL} mode every task runs on its own virtual thread and concurrency is bounded by a
+ * semaphore, so thousands of tasks can be blocked on the network without one platform thread each. Virtual threads
+ * need a Java 21+ runtime; on older runtimes the executor falls back to {@link ExecutionMode#PLATFORM}, a fixed pool
+ * of platform threads.
+ */
+public class IoTaskExecutor extends AbstractExecutorService {
+
+  final static Logger logger = LoggerFactory.getLogger(IoTaskExecutor.class);
+
+  public static final String EXECUTION_MODE_PROPERTY = "cedar.submission.executionMode";
+
+  private final ExecutorService delegate;
+  private final Semaphore permits;
+  private final ExecutionMode executionMode;
+  private final int maxConcurrency;
+
+  private IoTaskExecutor(ExecutorService delegate, Semaphore permits, ExecutionMode executionMode,
+                         int maxConcurrency) {
+    this.delegate = delegate;
+    this.permits = permits;
+    this.executionMode = executionMode;
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  /**
+   * Creates an executor in the mode selected by the {@value #EXECUTION_MODE_PROPERTY} system property.
+   *
+   * @param platformThreads    pool size used in platform mode
+   * @param virtualConcurrency max. number of tasks running at once in virtual mode
+   */
+  public static IoTaskExecutor create(String name, int platformThreads, int virtualConcurrency) {
+    return create(name, platformThreads, virtualConcurrency,
+        ExecutionMode.fromString(System.getProperty(EXECUTION_MODE_PROPERTY)));
+  }
+
+  public static IoTaskExecutor create(String name, int platformThreads, int virtualConcurrency,
+                                      ExecutionMode executionMode) {
+    if (executionMode == ExecutionMode.VIRTUAL) {
+      ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+      if (virtualThreadExecutor != null) {
+        logger.info("Running " + name + " tasks on virtual threads (max. concurrency = " + virtualConcurrency + ")");
+        return new IoTaskExecutor(virtualThreadExecutor, new Semaphore(virtualConcurrency), ExecutionMode.VIRTUAL,
+            virtualConcurrency);
+      }
+      logger.warn("Virtual threads are not supported by this runtime. Running " + name + " tasks on platform threads");
+    }
+    logger.info("Running " + name + " tasks on " + platformThreads + " platform threads");
+    return new IoTaskExecutor(Executors.newFixedThreadPool(platformThreads, namedDaemonThreadFactory(name)), null,
+        ExecutionMode.PLATFORM, platformThreads);
+  }
+
+  public ExecutionMode getExecutionMode() {
+    return executionMode;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (permits == null) {
+      delegate.execute(command);
+    } else {
+      delegate.execute(() -> {
+        permits.acquireUninterruptibly();
+        try {
+          command.run();
+        } finally {
+          permits.release();
+        }
+      });
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+
+  // Looked up reflectively so that the server still builds and runs on runtimes without virtual threads
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  private static ThreadFactory namedDaemonThreadFactory(String name) {
+    AtomicInteger threadNumber = new AtomicInteger(1);
+    return r -> {
+      Thread thread = new Thread(r, name + "-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,42 @@
+package org.metadatacenter.submission.concurrent;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter. Tokens are added at a constant rate, up to a maximum burst. Instead of blocking, a caller
+ * reserves a token and is told how long to wait before using it, so that callers can delay their work without holding
+ * a thread.
+ */
+public class TokenBucket {
+
+  private final double tokensPerMillisecond;
+  private final double maxTokens;
+  private final LongSupplier clock; // ms
+  private double tokens; // guarded by 'this'; negative when tokens have been reserved in advance
+  private long lastRefillTime; // guarded by 'this'
+
+  public TokenBucket(double tokensPerSecond, int burst) {
+    this(tokensPerSecond, burst, System::currentTimeMillis);
+  }
+
+  TokenBucket(double tokensPerSecond, int burst, LongSupplier clock) {
+    this.tokensPerMillisecond = tokensPerSecond / 1000;
+    this.maxTokens = burst;
+    this.clock = clock;
+    this.tokens = burst;
+    this.lastRefillTime = clock.getAsLong();
+  }
+
+  /**
+   * Reserve the next token.
+   *
+   * @return the time (in ms) to wait before the token can be used; 0 if it can be used now
+   */
+  public synchronized long reserve() {
+    long now = clock.getAsLong();
+    tokens = Math.min(maxTokens, tokens + (now - lastRefillTime) * tokensPerMillisecond);
+    lastRefillTime = now;
+    tokens -= 1;
+    return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerMillisecond);
+  }
+}
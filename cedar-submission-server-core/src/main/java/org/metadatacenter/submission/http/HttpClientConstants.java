@@ -0,0 +1,10 @@
+package org.metadatacenter.submission.http;
+
+public class HttpClientConstants {
+
+  /* Shared connection pool. Per-route limits and timeouts are set per upstream (see HttpUpstream) */
+  public static int POOL_MAX_TOTAL = 100;
+  public static long POOL_IDLE_TIMEOUT = 30000; // ms; idle connections are closed after this time
+  public static int POOL_CONNECTION_REQUEST_TIMEOUT = 5000; // ms; max wait for a connection when the route is full
+
+}
@@ -0,0 +1,40 @@
+package org.metadatacenter.submission.http;
+
+import org.apache.http.client.config.RequestConfig;
+import org.metadatacenter.constant.HttpConnectionConstants;
+
+/**
+ * The external services called by the submission server, with the connection settings used for each of them.
+ */
+public enum HttpUpstream {
+
+  IMMPORT(20, 10000, 120000),
+  // Submissions upload all the files in a single request, and ImmPort only answers once it has received them, so
+  // there is no socket timeout (as before the shared client). Same host as IMMPORT, so same per-route limit
+  IMMPORT_UPLOAD(20, 10000, 0),
+  NCBI_VALIDATOR(10, 10000, 60000),
+  LINCS(10, HttpConnectionConstants.CONNECTION_TIMEOUT, HttpConnectionConstants.SOCKET_TIMEOUT);
+
+  private final int maxConnectionsPerRoute;
+  private final RequestConfig requestConfig;
+
+  /**
+   * @param socketTimeout max. time (in ms) between two packets of the response; 0 for no timeout
+   */
+  HttpUpstream(int maxConnectionsPerRoute, int connectTimeout, int socketTimeout) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    this.requestConfig = RequestConfig.custom()
+        .setConnectTimeout(connectTimeout)
+        .setSocketTimeout(socketTimeout)
+        .setConnectionRequestTimeout(HttpClientConstants.POOL_CONNECTION_REQUEST_TIMEOUT)
+        .build();
+  }
+
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public RequestConfig getRequestConfig() {
+    return requestConfig;
+  }
+}
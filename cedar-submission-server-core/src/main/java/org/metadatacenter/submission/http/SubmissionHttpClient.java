@@ -0,0 +1,165 @@
+package org.metadatacenter.submission.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client shared by the calls to the external services (ImmPort, the NCBI BioSample validator, LINCS). Connections
+ * are pooled and kept alive, so that successive calls to a service do not each pay a new TLS handshake. Each upstream
+ * has its own per-route connection limit and timeouts (see {@link HttpUpstream}).
+ * <p>
+ * Responses must be closed with {@link HttpClientUtils#closeQuietly(CloseableHttpResponse)}, which consumes the
+ * remaining content so that the connection goes back to the pool. The client itself must not be closed.
+ */
+public class SubmissionHttpClient implements Managed {
+
+  final static Logger logger = LoggerFactory.getLogger(SubmissionHttpClient.class);
+
+  private static SubmissionHttpClient singleInstance;
+
+  private final LeaseTimingConnectionManager connectionManager;
+  private final CloseableHttpClient client;
+  private final Set<HttpRoute> configuredRoutes = ConcurrentHashMap.newKeySet();
+  private final Map<HttpUpstream, Timer> requestTimers = new EnumMap<>(HttpUpstream.class);
+  private final Timer leaseWaitTimer = new Timer();
+  private final Timer leaseTimer = new Timer();
+
+  private SubmissionHttpClient() {
+    connectionManager = new LeaseTimingConnectionManager();
+    connectionManager.setMaxTotal(HttpClientConstants.POOL_MAX_TOTAL);
+    client = HttpClientBuilder.create()
+        .setConnectionManager(connectionManager)
+        .evictExpiredConnections()
+        .evictIdleConnections(HttpClientConstants.POOL_IDLE_TIMEOUT, TimeUnit.MILLISECONDS)
+        .build();
+    for (HttpUpstream upstream : HttpUpstream.values()) {
+      requestTimers.put(upstream, new Timer());
+    }
+  }
+
+  public static synchronized SubmissionHttpClient getInstance() {
+    if (singleInstance == null) {
+      singleInstance = new SubmissionHttpClient();
+    }
+    return singleInstance;
+  }
+
+  /**
+   * Execute a request with the settings of the given upstream, unless the request has its own configuration.
+   */
+  public CloseableHttpResponse execute(HttpUpstream upstream, HttpRequestBase request) throws IOException {
+    if (request.getConfig() == null) {
+      request.setConfig(upstream.getRequestConfig());
+    }
+    configureRoute(upstream, URIUtils.extractHost(request.getURI()));
+    try (Timer.Context ignored = requestTimers.get(upstream).time()) {
+      return client.execute(request);
+    }
+  }
+
+  /**
+   * Expose the pool usage and the connection lease times, so that the limits can be tuned from the observed load.
+   */
+  public void registerMetrics(MetricRegistry metrics) {
+    String prefix = MetricRegistry.name(SubmissionHttpClient.class, "pool");
+    metrics.register(MetricRegistry.name(prefix, "leased"),
+        (Gauge<Integer>) () -> connectionManager.getTotalStats().getLeased());
+    metrics.register(MetricRegistry.name(prefix, "available"),
+        (Gauge<Integer>) () -> connectionManager.getTotalStats().getAvailable());
+    metrics.register(MetricRegistry.name(prefix, "pending"),
+        (Gauge<Integer>) () -> connectionManager.getTotalStats().getPending());
+    metrics.register(MetricRegistry.name(prefix, "max-total"),
+        (Gauge<Integer>) () -> connectionManager.getTotalStats().getMax());
+    metrics.register(MetricRegistry.name(prefix, "lease-wait"), leaseWaitTimer);
+    metrics.register(MetricRegistry.name(prefix, "lease-time"), leaseTimer);
+    for (Map.Entry<HttpUpstream, Timer> requestTimer : requestTimers.entrySet()) {
+      metrics.register(MetricRegistry.name(SubmissionHttpClient.class, requestTimer.getKey().name().toLowerCase(),
+          "requests"), requestTimer.getValue());
+    }
+  }
+
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public void stop() {
+    logger.info("Closing the shared HTTP client");
+    HttpClientUtils.closeQuietly(client);
+  }
+
+  private void configureRoute(HttpUpstream upstream, HttpHost host) {
+    if (host == null) {
+      return;
+    }
+    boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+    int port = host.getPort() > 0 ? host.getPort() : (secure ? 443 : 80);
+    HttpRoute route = new HttpRoute(new HttpHost(host.getHostName(), port, host.getSchemeName()), null, secure);
+    if (configuredRoutes.add(route)) {
+      connectionManager.setMaxPerRoute(route, upstream.getMaxConnectionsPerRoute());
+    }
+  }
+
+  /**
+   * Records how long requests wait for a connection and how long they hold it.
+   */
+  private class LeaseTimingConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final Map<HttpClientConnection, Long> leaseStartTimes = new ConcurrentHashMap<>();
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+      ConnectionRequest connectionRequest = super.requestConnection(route, state);
+      long requestTime = System.nanoTime();
+      return new ConnectionRequest() {
+        @Override
+        public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+            throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+          HttpClientConnection connection = connectionRequest.get(timeout, timeUnit);
+          long leaseTime = System.nanoTime();
+          leaseWaitTimer.update(leaseTime - requestTime, TimeUnit.NANOSECONDS);
+          leaseStartTimes.put(connection, leaseTime);
+          return connection;
+        }
+
+        @Override
+        public boolean cancel() {
+          return connectionRequest.cancel();
+        }
+      };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection connection, Object state, long keepAlive, TimeUnit timeUnit) {
+      Long leaseStartTime = leaseStartTimes.remove(connection);
+      if (leaseStartTime != null) {
+        leaseTimer.update(System.nanoTime() - leaseStartTime, TimeUnit.NANOSECONDS);
+      }
+      super.releaseConnection(connection, state, keepAlive, timeUnit);
+    }
+  }
+}
@@ -1,9 +1,16 @@
 package org.metadatacenter.submission.immport;
 
+import org.apache.http.client.methods.HttpRequestBase;
 import org.metadatacenter.submission.status.SubmissionStatus;
 import org.metadatacenter.submission.status.SubmissionStatusTask;
 import org.metadatacenter.submission.status.SubmissionType;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class ImmPortSubmissionStatusTask extends SubmissionStatusTask {
 
   private ImmPortUtil immPortUtil;
@@ -15,7 +22,33 @@ public class ImmPortSubmissionStatusTask extends SubmissionStatusTask {
   }
 
   @Override
-  protected SubmissionStatus callSubmissionStatusEndpoint() {
+  protected SubmissionStatus callSubmissionStatusEndpoint() throws IOException {
     return immPortUtil.getImmPortSubmissionStatus(getSubmissionID());
   }
+
+  /**
+   * Cancelling the check also aborts its HTTP request, as an interrupt does not unblock a thread waiting on a socket.
+   */
+  @Override
+  public CompletableFuture<SubmissionStatus> callAsync(Executor executor) {
+    AtomicReference<HttpRequestBase> currentRequest = new AtomicReference<>();
+    AtomicBoolean cancelled = new AtomicBoolean();
+    CompletableFuture<SubmissionStatus> result = callAsync(executor,
+        () -> immPortUtil.getImmPortSubmissionStatus(getSubmissionID(), request -> {
+          currentRequest.set(request);
+          if (cancelled.get()) { // cancelled before the request was created; an aborted request is not sent
+            request.abort();
+          }
+        }));
+    result.whenComplete((submissionStatus, e) -> {
+      if (result.isCancelled()) {
+        cancelled.set(true);
+        HttpRequestBase request = currentRequest.get();
+        if (request != null) {
+          request.abort();
+        }
+      }
+    });
+    return result;
+  }
 }
@@ -0,0 +1,121 @@
+package org.metadatacenter.submission.immport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.metadatacenter.submission.concurrent.IoTaskExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.metadatacenter.util.json.JsonMapper.MAPPER;
+
+/**
+ * Caches the ImmPort bearer token of an account until shortly before it expires. The token is refreshed in the
+ * background once less than REFRESH_MARGIN ms of its lifetime remain, so callers only wait for a token when there is
+ * no valid one. Concurrent refreshes are coalesced into a single call to the token endpoint.
+ */
+public class ImmPortTokenCache {
+
+  final static Logger logger = LoggerFactory.getLogger(ImmPortTokenCache.class);
+
+  // Lifetime assumed for tokens that do not carry their expiry time (i.e., that are not JWTs with an 'exp' claim)
+  public static long TOKEN_TTL = 10 * 60 * 1000; // ms
+  public static long REFRESH_MARGIN = 60 * 1000; // ms
+
+  private static final Map<String, ImmPortTokenCache> caches = new ConcurrentHashMap<>();
+  // Refreshes are coalesced per account, so a couple of threads are enough
+  private static final IoTaskExecutor refresher = IoTaskExecutor.create("immport-token-refresh", 2, 10);
+
+  private final Supplier<Optional<String>> tokenLoader;
+  private volatile CachedToken cachedToken;
+  private CompletableFuture<Optional<String>> refresh; // guarded by 'this'
+
+  private ImmPortTokenCache(Supplier<Optional<String>> tokenLoader) {
+    this.tokenLoader = tokenLoader;
+  }
+
+  /**
+   * @return the cache shared by all the clients of the given token endpoint and account
+   */
+  public static ImmPortTokenCache getInstance(String tokenUrl, String userName,
+                                              Supplier<Optional<String>> tokenLoader) {
+    return caches.computeIfAbsent(tokenUrl + "|" + userName, k -> new ImmPortTokenCache(tokenLoader));
+  }
+
+  public Optional<String> getToken() {
+    CachedToken token = cachedToken;
+    long now = System.currentTimeMillis();
+    if (token != null && now < token.expiresAt) {
+      if (now >= token.expiresAt - REFRESH_MARGIN) {
+        refresh();
+      }
+      return Optional.of(token.value);
+    }
+    return refresh().join();
+  }
+
+  /**
+   * Drops the given token (e.g., after ImmPort rejected it), so that the next call gets a new one.
+   */
+  public void invalidate(String token) {
+    CachedToken current = cachedToken;
+    if (current != null && current.value.equals(token)) {
+      cachedToken = null;
+    }
+  }
+
+  private synchronized CompletableFuture<Optional<String>> refresh() {
+    if (refresh == null) {
+      CompletableFuture<Optional<String>> future = new CompletableFuture<>();
+      refresh = future;
+      refresher.execute(() -> {
+        Optional<String> token = Optional.empty();
+        try {
+          token = tokenLoader.get();
+          if (token.isPresent()) {
+            cachedToken = new CachedToken(token.get(), getExpirationTime(token.get()));
+          }
+        } catch (RuntimeException e) {
+          logger.warn("Error while refreshing the ImmPort token: " + e.getMessage());
+        } finally {
+          synchronized (this) {
+            refresh = null;
+          }
+          future.complete(token);
+        }
+      });
+    }
+    return refresh;
+  }
+
+  private static long getExpirationTime(String token) {
+    String[] parts = token.split("\\.");
+    if (parts.length == 3) {
+      try {
+        JsonNode claims = MAPPER.readTree(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8));
+        if (claims.has("exp")) {
+          return claims.get("exp").asLong() * 1000;
+        }
+      } catch (Exception e) {
+        logger.debug("Could not read the expiration time of the ImmPort token: " + e.getMessage());
+      }
+    }
+    return System.currentTimeMillis() + TOKEN_TTL;
+  }
+
+  private static class CachedToken {
+    private final String value;
+    private final long expiresAt;
+
+    private CachedToken(String value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
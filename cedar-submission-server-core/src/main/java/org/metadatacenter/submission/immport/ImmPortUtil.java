@@ -7,14 +7,15 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.HttpClientUtils;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 import org.metadatacenter.config.CedarConfig;
 import org.metadatacenter.config.ImmPortConfig;
 import org.metadatacenter.submission.ImmPortGetTokenResponse;
+import org.metadatacenter.submission.http.HttpUpstream;
+import org.metadatacenter.submission.http.SubmissionHttpClient;
 import org.metadatacenter.submission.status.SubmissionState;
 import org.metadatacenter.submission.status.SubmissionStatus;
 import org.metadatacenter.submission.status.SubmissionStatusUtil;
@@ -26,6 +27,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.metadatacenter.constant.HttpConstants.*;
 import static org.metadatacenter.util.json.JsonMapper.MAPPER;
@@ -39,6 +41,7 @@ public class ImmPortUtil {
   private final String userName;
   private final String password;
   private final String statusUrl;
+  private final ImmPortTokenCache tokenCache;
 
   public ImmPortUtil(CedarConfig cedarConfig) {
     ImmPortConfig immPortConfig = cedarConfig.getSubmissionConfig().getImmPort();
@@ -48,48 +51,72 @@ public class ImmPortUtil {
     submissionUrl = cedarConfig.getSubmissionConfig().getImmPort().getSubmissionEndpoint().getUrl();
     tokenUrl = cedarConfig.getSubmissionConfig().getImmPort().getTokenEndpoint().getUrl();
     statusUrl = cedarConfig.getSubmissionConfig().getImmPort().getStatusEndpoint().getUrl();
+    tokenCache = ImmPortTokenCache.getInstance(tokenUrl, userName, this::requestImmPortBearerToken);
   }
 
-  public SubmissionStatus getImmPortSubmissionStatus(String submissionID) {
-    CloseableHttpResponse response = null;
-    CloseableHttpClient client = null;
+  /**
+   * When ImmPort rejects the cached token (e.g., it was revoked or rotated before its expiry time), the token is
+   * dropped and the call is retried once with a new one.
+   *
+   * @throws IOException if no token accepted by ImmPort could be obtained. The status of the submission is unknown, not
+   *                     failed, so it is checked again later
+   */
+  public SubmissionStatus getImmPortSubmissionStatus(String submissionID) throws IOException {
+    return getImmPortSubmissionStatus(submissionID, request -> {
+    });
+  }
 
-    Optional<String> token = getImmPortBearerToken();
-    if (!token.isPresent()) {
-      logger.warn("Could not get an ImmPort token");
-      return new SubmissionStatus(submissionID, SubmissionState.ERROR, "Could not get an ImmPort token");
-    }
+  /**
+   * @param requestListener gets each request before it is sent, so that it can be aborted from another thread
+   */
+  public SubmissionStatus getImmPortSubmissionStatus(String submissionID, Consumer<HttpRequestBase> requestListener)
+      throws IOException {
+    String immPortStatusURL = statusUrl + "/" + submissionID + "/report";
+    for (int attempt = 1; attempt <= 2; attempt++) {
+      Optional<String> token = getImmPortBearerToken();
+      if (!token.isPresent()) {
+        break;
+      }
 
-    try {
-      String immPortStatusURL = statusUrl + "/" + submissionID + "/report";
-      HttpGet get = new HttpGet(immPortStatusURL);
-      get.setHeader(HTTP_HEADER_AUTHORIZATION, HTTP_AUTH_HEADER_BEARER_PREFIX + token.get());
-      get.setHeader(HTTP_HEADER_ACCEPT, CONTENT_TYPE_APPLICATION_JSON);
-      client = HttpClientBuilder.create().build();
-      response = client.execute(get);
-
-      if (response.getStatusLine().getStatusCode() == 200) {
-        HttpEntity entity = response.getEntity();
-        return immPortSubmissionResponseBody2SubmissionStatus(submissionID, entity);
-      } else {
-        String errorMessage =
-            "Unexpected status code calling " + immPortStatusURL + "; status=" + response.getStatusLine()
-                .getStatusCode();
+      CloseableHttpResponse response = null;
+      try {
+        HttpGet get = new HttpGet(immPortStatusURL);
+        get.setHeader(HTTP_HEADER_AUTHORIZATION, HTTP_AUTH_HEADER_BEARER_PREFIX + token.get());
+        get.setHeader(HTTP_HEADER_ACCEPT, CONTENT_TYPE_APPLICATION_JSON);
+        requestListener.accept(get);
+        response = SubmissionHttpClient.getInstance().execute(HttpUpstream.IMMPORT, get);
+
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == 200) {
+          HttpEntity entity = response.getEntity();
+          return immPortSubmissionResponseBody2SubmissionStatus(submissionID, entity);
+        } else if (statusCode == Response.Status.UNAUTHORIZED.getStatusCode()) {
+          logger.warn("ImmPort rejected its token calling " + immPortStatusURL + " (attempt " + attempt + ")");
+          tokenCache.invalidate(token.get());
+        } else {
+          String errorMessage = "Unexpected status code calling " + immPortStatusURL + "; status=" + statusCode;
+          logger.warn(errorMessage);
+          return new SubmissionStatus(submissionID, SubmissionState.ERROR, errorMessage);
+        }
+      } catch (IOException e) {
+        String errorMessage = "IO exception calling import status endpoint: " + e.getMessage();
         logger.warn(errorMessage);
         return new SubmissionStatus(submissionID, SubmissionState.ERROR, errorMessage);
+      } finally {
+        HttpClientUtils.closeQuietly(response);
       }
-    } catch (IOException e) {
-      String errorMessage = "IO exception calling import status endpoint: " + e.getMessage();
-      logger.warn(errorMessage);
-      return new SubmissionStatus(submissionID, SubmissionState.ERROR, errorMessage);
-    } finally {
-      HttpClientUtils.closeQuietly(response);
-      HttpClientUtils.closeQuietly(client);
     }
+    throw new IOException("Could not get a valid ImmPort token to check the status of submission " + submissionID);
   }
 
+  /**
+   * Returns the cached token, which is only requested from ImmPort when it is missing or about to expire.
+   */
   public Optional<String> getImmPortBearerToken() {
-    CloseableHttpClient client = HttpClientBuilder.create().build();
+    return tokenCache.getToken();
+  }
+
+  private Optional<String> requestImmPortBearerToken() {
     HttpPost post = new HttpPost(tokenUrl);
     CloseableHttpResponse response = null;
 
@@ -100,7 +127,7 @@ public class ImmPortUtil {
       post.setEntity(new UrlEncodedFormEntity(parameters, "UTF-8"));
       post.setHeader(HTTP_HEADER_ACCEPT, CONTENT_TYPE_APPLICATION_JSON);
 
-      response = client.execute(post);
+      response = SubmissionHttpClient.getInstance().execute(HttpUpstream.IMMPORT, post);
 
       if (response.getStatusLine().getStatusCode() == Response.Status.OK.getStatusCode()) {
         HttpEntity entity = response.getEntity();
@@ -126,7 +153,6 @@ public class ImmPortUtil {
       return Optional.empty();
     } finally {
       HttpClientUtils.closeQuietly(response);
-      HttpClientUtils.closeQuietly(client);
     }
   }
 
@@ -0,0 +1,8 @@
+package org.metadatacenter.submission.lease;
+
+/**
+ * Notified when this node fails to renew a lease, i.e., another node now owns the submission.
+ */
+public interface SubmissionLeaseListener {
+  void onLeaseLost(String submissionID);
+}
@@ -0,0 +1,212 @@
+package org.metadatacenter.submission.lease;
+
+import io.dropwizard.lifecycle.Managed;
+import org.metadatacenter.submission.redis.SubmissionRedisClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records which server node owns each in-flight submission. Ownership is a Redis key holding the node id, created
+ * with a TTL and renewed by a heartbeat. When a node dies its leases expire, and the heartbeat of any surviving node
+ * picks up the orphaned submissions from the in-flight registry and hands them to the {@link
+ * SubmissionTakeoverHandler}.
+ */
+public class SubmissionLeaseManager implements Managed {
+
+  final static Logger logger = LoggerFactory.getLogger(SubmissionLeaseManager.class);
+
+  // Take the lease if it is free, or refresh it if we already hold it
+  private static final String ACQUIRE_SCRIPT =
+      "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 end " +
+          "if redis.call('get', KEYS[1]) == ARGV[1] then redis.call('pexpire', KEYS[1], ARGV[2]) return 1 end " +
+          "return 0";
+  private static final String RENEW_SCRIPT =
+      "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) end return 0";
+  private static final String RELEASE_SCRIPT =
+      "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0";
+  private static final long PTTL_NO_KEY = -2; // the lease has expired (or was released)
+
+  private final SubmissionRedisClient redisClient;
+  private final String leaseKeyPrefix;
+  private final String registryKey;
+  private final String nodeId;
+  private final long leaseTtlMillis;
+  private final long heartbeatMillis;
+  private final Set<String> heldLeases = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService heartbeat;
+  private SubmissionTakeoverHandler takeoverHandler;
+  private SubmissionLeaseListener leaseListener;
+
+  public SubmissionLeaseManager(SubmissionRedisClient redisClient, String keyPrefix, long leaseTtlMillis,
+                                long heartbeatMillis) {
+    this.redisClient = redisClient;
+    this.leaseKeyPrefix = keyPrefix + ":lease:";
+    this.registryKey = keyPrefix + ":inflight";
+    this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID();
+    this.leaseTtlMillis = leaseTtlMillis;
+    this.heartbeatMillis = heartbeatMillis;
+    this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "submission-lease-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void setTakeoverHandler(SubmissionTakeoverHandler takeoverHandler) {
+    this.takeoverHandler = takeoverHandler;
+  }
+
+  public void setLeaseListener(SubmissionLeaseListener leaseListener) {
+    this.leaseListener = leaseListener;
+  }
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  @Override
+  public void start() {
+    logger.info("Starting submission lease manager (node = " + nodeId + ")");
+    heartbeat.scheduleWithFixedDelay(this::beat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Hand off the leases held by this node. Their registry entries are kept, so that the heartbeat of another node (or
+   * of this node after a restart) takes the submissions over right away instead of waiting for the leases to expire.
+   */
+  @Override
+  public void stop() {
+    logger.info("Stopping submission lease manager (node = " + nodeId + ")");
+    heartbeat.shutdownNow();
+    for (String submissionID : heldLeases) {
+      logger.info("Handing off submission " + submissionID);
+      heldLeases.remove(submissionID);
+      try {
+        runScript(RELEASE_SCRIPT, submissionID);
+      } catch (Exception e) {
+        logger.error("Error while handing off submission " + submissionID + ": " + e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Try to take (or refresh) the lease on a submission. Returns false if another node holds it.
+   */
+  public boolean acquire(String submissionID) {
+    if (runScript(ACQUIRE_SCRIPT, submissionID)) {
+      heldLeases.add(submissionID);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Release the lease on a submission, if this node holds it, and drop it from the in-flight registry.
+   */
+  public void release(String submissionID) {
+    if (heldLeases.remove(submissionID)) {
+      redisClient.pipelined(pipeline -> {
+        pipeline.hdel(registryKey, submissionID);
+        pipeline.eval(RELEASE_SCRIPT, Collections.singletonList(leaseKeyPrefix + submissionID),
+            Arrays.asList(nodeId, String.valueOf(leaseTtlMillis)));
+      });
+    }
+  }
+
+  public boolean holds(String submissionID) {
+    return heldLeases.contains(submissionID);
+  }
+
+  /**
+   * Record (or update) the state a peer needs to resume a submission if this node dies. Ignored if this node does
+   * not hold the lease (e.g., the submission already completed).
+   */
+  public void register(String submissionID, String payload) {
+    if (!heldLeases.contains(submissionID)) {
+      return;
+    }
+    redisClient.execute(jedis -> jedis.hset(registryKey, submissionID, payload));
+  }
+
+  private void beat() {
+    try {
+      renewHeldLeases();
+      takeOverExpiredLeases();
+    } catch (Exception e) {
+      logger.error("Error in submission lease heartbeat: " + e.getMessage(), e);
+    }
+  }
+
+  // All the leases are renewed in a single round trip
+  private void renewHeldLeases() {
+    List<String> submissionIDs = new ArrayList<>(heldLeases);
+    if (submissionIDs.isEmpty()) {
+      return;
+    }
+    List<Object> replies = redisClient.pipelined(pipeline -> {
+      for (String submissionID : submissionIDs) {
+        pipeline.eval(RENEW_SCRIPT, Collections.singletonList(leaseKeyPrefix + submissionID),
+            Arrays.asList(nodeId, String.valueOf(leaseTtlMillis)));
+      }
+    });
+    for (int i = 0; i < submissionIDs.size(); i++) {
+      String submissionID = submissionIDs.get(i);
+      if (!Long.valueOf(1).equals(replies.get(i))) {
+        logger.warn("Lost the lease on submission " + submissionID);
+        heldLeases.remove(submissionID);
+        if (leaseListener != null) {
+          leaseListener.onLeaseLost(submissionID);
+        }
+      }
+    }
+  }
+
+  // The leases of all the other in-flight submissions are checked in a single round trip, and only the expired ones
+  // are acquired
+  private void takeOverExpiredLeases() {
+    if (takeoverHandler == null) {
+      return;
+    }
+    List<String> submissionIDs = new ArrayList<>(redisClient.execute(jedis -> jedis.hkeys(registryKey)));
+    submissionIDs.removeIf(heldLeases::contains);
+    if (submissionIDs.isEmpty()) {
+      return;
+    }
+    List<Object> ttls = redisClient.pipelined(pipeline -> {
+      for (String submissionID : submissionIDs) {
+        pipeline.pttl(leaseKeyPrefix + submissionID);
+      }
+    });
+    for (int i = 0; i < submissionIDs.size(); i++) {
+      String submissionID = submissionIDs.get(i);
+      if (Long.valueOf(PTTL_NO_KEY).equals(ttls.get(i)) && acquire(submissionID)) {
+        String payload = redisClient.execute(jedis -> jedis.hget(registryKey, submissionID));
+        if (payload == null) { // completed by its previous owner in the meantime
+          release(submissionID);
+        } else {
+          logger.info("Taking over orphaned submission " + submissionID);
+          takeoverHandler.takeOver(submissionID, payload);
+        }
+      }
+    }
+  }
+
+  private boolean runScript(String script, String submissionID) {
+    Object result = redisClient.execute(jedis -> jedis.eval(script,
+        Collections.singletonList(leaseKeyPrefix + submissionID), Arrays.asList(nodeId, String.valueOf(leaseTtlMillis))));
+    return Long.valueOf(1).equals(result);
+  }
+}
@@ -0,0 +1,9 @@
+package org.metadatacenter.submission.lease;
+
+/**
+ * Resumes a submission whose owning node stopped renewing its lease. The payload is the value last registered by the
+ * previous owner.
+ */
+public interface SubmissionTakeoverHandler {
+  void takeOver(String submissionID, String payload);
+}
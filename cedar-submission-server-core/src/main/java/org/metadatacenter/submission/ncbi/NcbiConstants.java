@@ -14,10 +14,26 @@ public class NcbiConstants {
   public static String NCBI_LOCAL_FOLDER_NAME = "ncbi-upload";
   public static int NCBI_SIMULATION_MODE_TIMEOUT = 30000;
   public static String SUBMISSION_XML_FILE_NAME = "submission.xml";
+  public static boolean SUBMISSION_XML_FORMATTED = true; // indented output, easier to read but larger
   public static String NCBI_REPORT_REGEX = "(report)\\.([0-9]+)\\.(xml)";
   public static String NCBI_XSLT_PATH = "xslt/ncbi_report.xsl";
   public static String NCBI_TEST_SUBMISSION_PATH = "submit/Test/2017-07-24T20-48-57.829Z_test"; // used for testing
 
+  /* Multi-node ownership of submissions */
+  public static long NCBI_SUBMISSION_LEASE_TTL = 30000; // ms
+  public static long NCBI_SUBMISSION_LEASE_HEARTBEAT = 10000; // ms; must be well below the TTL
+  public static long NCBI_SUBMISSION_DRAIN_TIMEOUT = 60000; // ms; time given to uploads to stop on shutdown
+  public static int NCBI_SUBMISSION_QUEUE_POLL_TIMEOUT = 5; // s; how often the consumer checks for shutdown
+  public static long NCBI_SUBMISSION_ENQUEUE_MARKER_TTL = 24 * 60 * 60 * 1000; // ms; window for duplicate detection
+
+  /* Status checks */
+  public static long NCBI_STATUS_BATCH_WINDOW = 500; // ms; time given to due checks to join the same FTP session
+  public static int NCBI_STATUS_BATCH_MAX_SIZE = 500;
+  public static long NCBI_STATUS_CHECK_TIMEOUT = 120000; // ms; includes the wait for the batch and the shared session
+  public static int NCBI_STATUS_MISSING_FOLDER_MAX_CHECKS = 4; // checks without the submission folder before giving up
+  public static int NCBI_STATUS_FTP_CONNECT_TIMEOUT = 30000; // ms
+  public static int NCBI_STATUS_FTP_SOCKET_TIMEOUT = 60000; // ms; max. wait for a reply or for data on the FTP session
+
   // PRIVATE //
 
   /**
@@ -1,5 +1,6 @@
 package org.metadatacenter.submission.ncbi;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 public class NcbiSubmission {
@@ -9,6 +10,8 @@ public class NcbiSubmission {
   private Collection<String> localFilePaths;
   private String submissionFolder;
   private boolean uploadSubmitReadyFile;
+  // Files already transferred to the NCBI. Used to resume an upload that was interrupted (e.g., on shutdown)
+  private Collection<String> uploadedFilePaths = new ArrayList<>();
 
   public NcbiSubmission() {
   }
@@ -62,6 +65,14 @@ public class NcbiSubmission {
     this.uploadSubmitReadyFile = uploadSubmitReadyFile;
   }
 
+  public Collection<String> getUploadedFilePaths() {
+    return uploadedFilePaths;
+  }
+
+  public void setUploadedFilePaths(Collection<String> uploadedFilePaths) {
+    this.uploadedFilePaths = uploadedFilePaths;
+  }
+
   @Override
   public String toString() {
     return "NcbiSubmission{" +
@@ -70,6 +81,7 @@ public class NcbiSubmission {
         ", localFilePaths=" + localFilePaths +
         ", submissionFolder='" + submissionFolder + '\'' +
         ", uploadSubmitReadyFile='" + uploadSubmitReadyFile + '\'' +
+        ", uploadedFilePaths=" + uploadedFilePaths +
         '}';
   }
 }
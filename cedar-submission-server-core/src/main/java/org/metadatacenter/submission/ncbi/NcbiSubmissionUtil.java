@@ -10,6 +10,7 @@ import javax.xml.bind.JAXBException;
 import javax.xml.datatype.DatatypeConfigurationException;
 import java.io.File;
 import java.io.IOException;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -20,7 +21,7 @@ public class NcbiSubmissionUtil {
 
   public static NcbiSubmission generateSubmission(String submissionId, String userId, String ncbiFolderName,
                                                   NcbiSubmissionXMLFileGenerator submissionXMLFileGenerator)
-      throws IOException, JAXBException, DatatypeConfigurationException {
+      throws IOException, JAXBException, DatatypeConfigurationException, ParseException {
 
     List<String> submissionFilePaths = new ArrayList<>();
     Map<String, FileUploadStatus> filesUploadStatus = SubmissionUploadManager.getInstance()
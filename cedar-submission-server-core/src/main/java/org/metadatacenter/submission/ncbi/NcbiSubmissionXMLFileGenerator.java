@@ -4,6 +4,7 @@ import javax.xml.bind.JAXBException;
 import javax.xml.datatype.DatatypeConfigurationException;
 import java.io.File;
 import java.io.IOException;
+import java.text.ParseException;
 
 /**
  * Read a CEDAR instance file and generate a file containing its NCBI-compliant XML representation.
@@ -12,5 +13,5 @@ import java.io.IOException;
  */
 public interface NcbiSubmissionXMLFileGenerator {
   File generateSubmissionXmlFile(File instanceFile, String submissionLocalFolderPath) throws
-      IOException, JAXBException, DatatypeConfigurationException;
+      IOException, JAXBException, DatatypeConfigurationException, ParseException;
 }
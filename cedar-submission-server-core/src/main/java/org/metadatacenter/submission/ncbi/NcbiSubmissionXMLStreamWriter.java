@@ -0,0 +1,62 @@
+package org.metadatacenter.submission.ncbi;
+
+import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
+import generated.Submission;
+import org.metadatacenter.submission.xml.JaxbContextRegistry;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a submission.xml document to a stream one section at a time: the root element and the description first,
+ * then each action as soon as it is built. Only the action being written is held in memory, whatever the number of
+ * BioSamples and SRAs in the submission. {@link #close()} ends the document but does not close the stream.
+ */
+public class NcbiSubmissionXMLStreamWriter implements AutoCloseable {
+
+  private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+  private static final QName SUBMISSION_ELEMENT = new QName("Submission");
+  private static final QName DESCRIPTION_ELEMENT = new QName("Description");
+  private static final QName ACTION_ELEMENT = new QName("Action");
+
+  private final XMLStreamWriter xmlStreamWriter;
+
+  public NcbiSubmissionXMLStreamWriter(OutputStream outputStream, boolean formatted) throws JAXBException {
+    try {
+      XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(outputStream, StandardCharsets.UTF_8.name());
+      xmlStreamWriter = formatted ? new IndentingXMLStreamWriter(writer) : writer;
+      xmlStreamWriter.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+      xmlStreamWriter.writeStartElement(SUBMISSION_ELEMENT.getLocalPart());
+    } catch (XMLStreamException e) {
+      throw new JAXBException("Error starting the submission XML", e);
+    }
+  }
+
+  public void writeDescription(Submission.Description description) throws JAXBException {
+    JaxbContextRegistry.marshalFragment(Submission.class,
+        new JAXBElement<>(DESCRIPTION_ELEMENT, Submission.Description.class, description), xmlStreamWriter);
+  }
+
+  public void writeAction(Submission.Action action) throws JAXBException {
+    JaxbContextRegistry.marshalFragment(Submission.class,
+        new JAXBElement<>(ACTION_ELEMENT, Submission.Action.class, action), xmlStreamWriter);
+  }
+
+  @Override
+  public void close() throws JAXBException {
+    try {
+      xmlStreamWriter.writeEndElement();
+      xmlStreamWriter.writeEndDocument();
+      xmlStreamWriter.flush();
+    } catch (XMLStreamException e) {
+      throw new JAXBException("Error ending the submission XML", e);
+    }
+  }
+}
@@ -9,14 +9,12 @@ import generated.TypeOrganization;
 import generated.TypeTargetDb;
 import org.metadatacenter.submission.AMIA2016DemoBioSampleTemplate;
 import org.metadatacenter.submission.OptionalAttribute;
+import org.metadatacenter.submission.xml.JaxbContextRegistry;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
-import java.io.StringWriter;
 import java.util.GregorianCalendar;
 
 /**
@@ -171,15 +169,7 @@ public class AMIA2016DemoBioSampleTemplate2BioSampleConverter {
       attribute.setAttributeName(optionalAttribute.getName().getValue());
       attribute.setValue(optionalAttribute.getValue().getValue());
     }
-    StringWriter writer = new StringWriter();
-
-    JAXBContext ctx = JAXBContext.newInstance(Submission.class);
-    Marshaller marshaller = ctx.createMarshaller();
-    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-    //marshaller.marshal(submissionRoot, System.out);
-    marshaller.marshal(xmlSubmission, writer);
-
-    return writer.toString();
+    return JaxbContextRegistry.marshal(xmlSubmission, true);
   }
 
   private XMLGregorianCalendar createXMLGregorianCalendar(String date) throws DatatypeConfigurationException {
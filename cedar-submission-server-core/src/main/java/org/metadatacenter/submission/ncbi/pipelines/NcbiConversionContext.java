@@ -0,0 +1,58 @@
+package org.metadatacenter.submission.ncbi.pipelines;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The state of one conversion of a template instance to a submission XML. The converters keep no state of their own,
+ * so a single converter can run any number of conversions at once, each with its own context. The actions of a
+ * conversion may be built by several threads (see {@link NcbiParallelActionWriter}), so the context is immutable.
+ * <p>
+ * The action and SRA ids are derived from the hash of the instance and the position of the item, so converting the
+ * same instance again gives the same document (see {@link NcbiSubmissionXMLCache}).
+ */
+public class NcbiConversionContext {
+
+  private final String instanceHash;
+  private final Optional<String> submissionsReleaseDate;
+  private final String bioprojectAccession;
+
+  public NcbiConversionContext(String instanceHash, Optional<String> submissionsReleaseDate,
+                               String bioprojectAccession) {
+    this.instanceHash = instanceHash;
+    this.submissionsReleaseDate = submissionsReleaseDate;
+    this.bioprojectAccession = bioprojectAccession;
+  }
+
+  public String getInstanceHash() {
+    return instanceHash;
+  }
+
+  public Optional<String> getSubmissionsReleaseDate() {
+    return submissionsReleaseDate;
+  }
+
+  public String getBioprojectAccession() {
+    return bioprojectAccession;
+  }
+
+  /**
+   * @param index position of the SRA in the instance
+   */
+  public String createNewSraId(int index) {
+    return createNewId("SRA", index);
+  }
+
+  /**
+   * @param index position of the BioSample in the instance
+   */
+  public String createNewActionId(int index) {
+    return createNewId("Action", index);
+  }
+
+  private String createNewId(String prefix, int index) {
+    String name = instanceHash + "/" + prefix + "/" + index;
+    return prefix + "-" + UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,28 @@
+package org.metadatacenter.submission.ncbi.pipelines;
+
+/**
+ * One row of a mapping table: the template field to read and the NCBI attribute it is written to. The attribute is
+ * only written when the field has a value. See {@link NcbiFieldMappingTable}.
+ */
+public class NcbiFieldMapping {
+
+  private final String fieldName;
+  private final String attributeName;
+
+  private NcbiFieldMapping(String fieldName, String attributeName) {
+    this.fieldName = fieldName;
+    this.attributeName = attributeName;
+  }
+
+  public static NcbiFieldMapping optional(String fieldName, String attributeName) {
+    return new NcbiFieldMapping(fieldName, attributeName);
+  }
+
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  public String getAttributeName() {
+    return attributeName;
+  }
+}
@@ -0,0 +1,63 @@
+package org.metadatacenter.submission.ncbi.pipelines;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import static org.metadatacenter.submission.ncbi.NcbiConstants.ID_FIELD;
+import static org.metadatacenter.submission.ncbi.NcbiConstants.VALUE_FIELD;
+
+/**
+ * Field mappings compiled into flat arrays, once, when the converter class is loaded. Applying the table to a
+ * template element (a BioSample, an SRA) is a single pass over the arrays, with one lookup per field and no
+ * intermediate objects: only the attributes that have a value are handed to the consumer, in table order.
+ */
+public class NcbiFieldMappingTable {
+
+  public interface AttributeConsumer {
+    void accept(String attributeName, String value);
+  }
+
+  private final String[] fieldNames;
+  private final String[] attributeNames;
+
+  private NcbiFieldMappingTable(NcbiFieldMapping[] mappings) {
+    fieldNames = new String[mappings.length];
+    attributeNames = new String[mappings.length];
+    for (int i = 0; i < mappings.length; i++) {
+      fieldNames[i] = mappings[i].getFieldName();
+      attributeNames[i] = mappings[i].getAttributeName();
+    }
+  }
+
+  public static NcbiFieldMappingTable compile(NcbiFieldMapping... mappings) {
+    return new NcbiFieldMappingTable(mappings);
+  }
+
+  public void apply(JsonNode element, AttributeConsumer consumer) {
+    for (int i = 0; i < fieldNames.length; i++) {
+      String value = getFieldValue(element.get(fieldNames[i]));
+      if (value != null) {
+        consumer.accept(attributeNames[i], value);
+      }
+    }
+  }
+
+  /**
+   * Same rules as {@link NcbiPipelinesCommonUtil#getTemplateFieldValue}: the @value of the field, or else its @id,
+   * ignoring empty values.
+   */
+  private static String getFieldValue(JsonNode fieldNode) {
+    if (fieldNode == null) {
+      return null;
+    }
+    String value = getText(fieldNode.get(VALUE_FIELD));
+    return value != null ? value : getText(fieldNode.get(ID_FIELD));
+  }
+
+  private static String getText(JsonNode node) {
+    if (node == null || node.isNull()) {
+      return null;
+    }
+    String text = node.asText();
+    return text.isEmpty() ? null : text;
+  }
+}
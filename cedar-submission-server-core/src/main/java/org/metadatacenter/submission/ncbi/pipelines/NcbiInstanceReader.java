@@ -0,0 +1,93 @@
+package org.metadatacenter.submission.ncbi.pipelines;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.metadatacenter.util.json.JsonMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads a template instance with the streaming parser of the shared mapper, keeping only what the conversion to XML
+ * uses: the given top-level sections (BioProject, BioSamples, SRAs...), without their JSON-LD contexts. The contexts
+ * are repeated in every element and make up most of a CEDAR instance; they and the other top-level fields are skipped
+ * by the parser without ever being turned into nodes, so only the compact tree of the sections is held in memory.
+ */
+public class NcbiInstanceReader {
+
+  public static final String CONTEXT_FIELD = "@context";
+
+  private final Set<String> sections;
+  private final JsonNodeFactory nodeFactory = JsonMapper.MAPPER.getNodeFactory();
+
+  public NcbiInstanceReader(Collection<String> sections) {
+    this.sections = new HashSet<>(sections);
+  }
+
+  public JsonNode read(File instanceFile) throws IOException {
+    try (JsonParser parser = JsonMapper.MAPPER.getFactory().createParser(instanceFile)) {
+      return read(parser);
+    }
+  }
+
+  public JsonNode read(InputStream instanceStream) throws IOException {
+    try (JsonParser parser = JsonMapper.MAPPER.getFactory().createParser(instanceStream)) {
+      return read(parser);
+    }
+  }
+
+  private JsonNode read(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "The instance is not a JSON object");
+    }
+    return readObject(parser, true);
+  }
+
+  /**
+   * Read the object whose START_OBJECT token is the current token, up to its END_OBJECT token.
+   */
+  private ObjectNode readObject(JsonParser parser, boolean instanceRoot) throws IOException {
+    ObjectNode object = nodeFactory.objectNode();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      parser.nextToken();
+      if (instanceRoot ? sections.contains(fieldName) : !CONTEXT_FIELD.equals(fieldName)) {
+        object.set(fieldName, readValue(parser));
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return object;
+  }
+
+  private JsonNode readValue(JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case START_OBJECT:
+        return readObject(parser, false);
+      case START_ARRAY:
+        ArrayNode array = nodeFactory.arrayNode();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          array.add(readValue(parser));
+        }
+        return array;
+      case VALUE_STRING:
+        return nodeFactory.textNode(parser.getText());
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        return nodeFactory.booleanNode(parser.getBooleanValue());
+      case VALUE_NULL:
+        return nodeFactory.nullNode();
+      default: // numbers, read as the mapper would
+        return JsonMapper.MAPPER.readTree(parser);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package org.metadatacenter.submission.ncbi.pipelines;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import generated.Submission;
+import org.metadatacenter.submission.ncbi.NcbiSubmissionXMLStreamWriter;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.datatype.DatatypeConfigurationException;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the actions of a template element (the BioSamples, the SRAs) and writes them to the submission XML. Above
+ * PARALLEL_THRESHOLD items, the actions are built on a shared pool while the calling thread writes them. They are
+ * written in the order of the items, so the document is the same as with a sequential conversion. At most
+ * MAX_ACTIONS_AHEAD actions are built ahead of the writer, which keeps the memory used by the conversion bounded.
+ */
+public class NcbiParallelActionWriter {
+
+  public static int PARALLEL_THRESHOLD = 500; // items; smaller elements are converted on the calling thread
+  public static int CONVERSION_THREADS = Runtime.getRuntime().availableProcessors();
+  public static int MAX_ACTIONS_AHEAD = 1000;
+
+  private static ExecutorService conversionExecutor;
+
+  public interface ActionBuilder {
+    Submission.Action build(JsonNode item, int index) throws JAXBException, DatatypeConfigurationException,
+        ParseException;
+  }
+
+  private NcbiParallelActionWriter() {
+  }
+
+  public static void writeActions(JsonNode items, ActionBuilder actionBuilder,
+                                  NcbiSubmissionXMLStreamWriter submissionWriter) throws JAXBException,
+      DatatypeConfigurationException, ParseException {
+    if (items.size() < PARALLEL_THRESHOLD || CONVERSION_THREADS < 2) {
+      int index = 0;
+      for (JsonNode item : items) {
+        submissionWriter.writeAction(actionBuilder.build(item, index++));
+      }
+      return;
+    }
+
+    ExecutorService executor = getConversionExecutor();
+    Deque<Future<Submission.Action>> actions = new ArrayDeque<>();
+    Iterator<JsonNode> itemIterator = items.iterator();
+    int nextIndex = 0;
+    try {
+      while (itemIterator.hasNext() || !actions.isEmpty()) {
+        while (itemIterator.hasNext() && actions.size() < MAX_ACTIONS_AHEAD) {
+          JsonNode item = itemIterator.next();
+          int index = nextIndex++;
+          actions.add(executor.submit(() -> actionBuilder.build(item, index)));
+        }
+        submissionWriter.writeAction(getAction(actions.poll()));
+      }
+    } finally {
+      // Only left over when the conversion failed
+      for (Future<Submission.Action> action : actions) {
+        action.cancel(true);
+      }
+    }
+  }
+
+  private static Submission.Action getAction(Future<Submission.Action> action) throws JAXBException,
+      DatatypeConfigurationException, ParseException {
+    try {
+      return action.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JAXBException("Submission XML conversion interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof JAXBException) {
+        throw (JAXBException) cause;
+      } else if (cause instanceof DatatypeConfigurationException) {
+        throw (DatatypeConfigurationException) cause;
+      } else if (cause instanceof ParseException) {
+        throw (ParseException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new JAXBException("Submission XML conversion failed", cause);
+    }
+  }
+
+  private static synchronized ExecutorService getConversionExecutor() {
+    if (conversionExecutor == null) {
+      AtomicInteger threadNumber = new AtomicInteger(1);
+      conversionExecutor = Executors.newFixedThreadPool(CONVERSION_THREADS, r -> {
+        Thread thread = new Thread(r, "submission-xml-conversion-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return conversionExecutor;
+  }
+}
@@ -0,0 +1,198 @@
+package org.metadatacenter.submission.ncbi.pipelines;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Submission XML already generated for a template instance, keyed by a hash of the instance content. The validation
+ * endpoints convert the instance every time the user validates it, and the submission converts it once more: as long
+ * as the instance does not change, the XML is generated once. The ids in the XML are derived from the same hash (see
+ * {@link NcbiConversionContext}), so a cached document is identical to a new conversion.
+ * <p>
+ * The least recently used entries are evicted first. At most maxEntries documents and maxSize bytes are kept, each
+ * for ttl ms at most; documents larger than maxEntrySize are not cached.
+ */
+public class NcbiSubmissionXMLCache {
+
+  public static final int DEFAULT_MAX_ENTRIES = 100;
+  public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024; // bytes
+  public static final long DEFAULT_MAX_ENTRY_SIZE = 8 * 1024 * 1024; // bytes
+  public static final long DEFAULT_TTL = 60 * 60 * 1000; // ms
+
+  private static NcbiSubmissionXMLCache singleInstance;
+
+  // In access order, so the entries to evict are always the first ones
+  private final LinkedHashMap<String, CachedXml> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long size; // guarded by 'this'
+
+  private final int maxEntries;
+  private final long maxSize; // bytes
+  private final long maxEntrySize; // bytes
+  private final long ttl; // ms
+  private final LongSupplier clock; // ms
+
+  private NcbiSubmissionXMLCache() {
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE, DEFAULT_TTL, System::currentTimeMillis);
+  }
+
+  // Package-private for the tests; use getInstance()
+  NcbiSubmissionXMLCache(int maxEntries, long maxSize, long maxEntrySize, long ttl, LongSupplier clock) {
+    this.maxEntries = maxEntries;
+    this.maxSize = maxSize;
+    this.maxEntrySize = maxEntrySize;
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  public static synchronized NcbiSubmissionXMLCache getInstance() {
+    if (singleInstance == null) {
+      singleInstance = new NcbiSubmissionXMLCache();
+    }
+    return singleInstance;
+  }
+
+  /**
+   * @return the cache key of the XML generated by a pipeline for an instance
+   */
+  public static String getKey(String pipeline, String instanceHash, boolean formatted) {
+    return pipeline + (formatted ? ":formatted:" : ":compact:") + instanceHash;
+  }
+
+  /**
+   * @return the cached XML, or null if there is none
+   */
+  public synchronized byte[] get(String key) {
+    long now = clock.getAsLong();
+    CachedXml cachedXml = entries.get(key);
+    if (cachedXml == null) {
+      return null;
+    }
+    if (now - cachedXml.creationTime > ttl) {
+      remove(key);
+      return null;
+    }
+    return cachedXml.xml;
+  }
+
+  public synchronized void put(String key, byte[] xml) {
+    if (xml.length > maxEntrySize) {
+      return;
+    }
+    remove(key);
+    entries.put(key, new CachedXml(xml, clock.getAsLong()));
+    size += xml.length;
+    evict();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private void remove(String key) {
+    CachedXml removed = entries.remove(key);
+    if (removed != null) {
+      size -= removed.xml.length;
+    }
+  }
+
+  private void evict() {
+    Iterator<CachedXml> cachedXmls = entries.values().iterator();
+    while (cachedXmls.hasNext() && (entries.size() > maxEntries || size > maxSize)) {
+      size -= cachedXmls.next().xml.length;
+      cachedXmls.remove();
+    }
+  }
+
+  /**
+   * Hash of the content of a template instance, independent of the order of the fields of its objects and of its
+   * formatting. Only the given top-level sections are hashed, without their JSON-LD contexts, so a full instance and
+   * the same instance read by {@link NcbiInstanceReader} have the same hash.
+   *
+   * @return the SHA-256 hash of the instance, in hexadecimal
+   */
+  public static String hash(JsonNode instance, Collection<String> sections) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+    List<String> sectionNames = new ArrayList<>(sections);
+    Collections.sort(sectionNames);
+    digest.update((byte) '{');
+    for (String sectionName : sectionNames) {
+      JsonNode section = instance.get(sectionName);
+      if (section != null) {
+        update(digest, sectionName);
+        update(digest, section);
+      }
+    }
+    digest.update((byte) '}');
+    StringBuilder hash = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hash.append(String.format("%02x", b));
+    }
+    return hash.toString();
+  }
+
+  private static void update(MessageDigest digest, JsonNode node) {
+    if (node.isObject()) {
+      List<String> fieldNames = new ArrayList<>(node.size());
+      node.fieldNames().forEachRemaining(fieldNames::add);
+      fieldNames.remove(NcbiInstanceReader.CONTEXT_FIELD);
+      Collections.sort(fieldNames);
+      digest.update((byte) '{');
+      for (String fieldName : fieldNames) {
+        update(digest, fieldName);
+        update(digest, node.get(fieldName));
+      }
+      digest.update((byte) '}');
+    } else if (node.isArray()) {
+      digest.update((byte) '[');
+      for (JsonNode element : node) {
+        update(digest, element);
+      }
+      digest.update((byte) ']');
+    } else if (node.isNull()) {
+      digest.update((byte) 'z');
+    } else if (node.isBoolean()) {
+      digest.update((byte) (node.booleanValue() ? 't' : 'f'));
+    } else if (node.isNumber()) {
+      digest.update((byte) 'n');
+      update(digest, node.asText());
+    } else {
+      digest.update((byte) 's');
+      update(digest, node.asText());
+    }
+  }
+
+  private static void update(MessageDigest digest, String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    // Length first, so that no two sequences of strings give the same bytes
+    digest.update((byte) (bytes.length >>> 24));
+    digest.update((byte) (bytes.length >>> 16));
+    digest.update((byte) (bytes.length >>> 8));
+    digest.update((byte) bytes.length);
+    digest.update(bytes);
+  }
+
+  private static class CachedXml {
+    private final byte[] xml;
+    private final long creationTime;
+
+    private CachedXml(byte[] xml, long creationTime) {
+      this.xml = xml;
+      this.creationTime = creationTime;
+    }
+  }
+}
@@ -242,6 +242,15 @@ public class NcbiCairrConstants {
 
   protected static final List<String> SRA_REQUIRED_FIELD_VALUES = SRA_FIELDS;
 
+  // Top-level fields of the instance used by the conversion to XML
+  protected static final List<String> INSTANCE_SECTIONS =
+      Collections.unmodifiableList(Arrays.asList(
+          SUBMISSION_RELEASE_DATE_FIELD,
+          BIOPROJECT_ELEMENT,
+          BIOSAMPLE_ELEMENT,
+          SRA_ELEMENT
+      ));
+
   // PRIVATE //
 
   /**
@@ -7,33 +7,111 @@ import com.fasterxml.jackson.databind.JsonNode;
 import common.sp.*;
 import generated.ObjectFactory;
 import generated.*;
+import org.metadatacenter.submission.ncbi.NcbiSubmissionXMLStreamWriter;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiConversionContext;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiFieldMappingTable;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiParallelActionWriter;
 import org.metadatacenter.submission.ncbi.pipelines.NcbiPipelinesCommonUtil;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiSubmissionXMLCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
-import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
+import static org.metadatacenter.submission.ncbi.pipelines.NcbiFieldMapping.optional;
 import static org.metadatacenter.submission.ncbi.pipelines.cairr.NcbiCairrConstants.*;
 
 /**
  * Convert a CEDAR JSON Schema-based NCBI2CEDAR instance to a BioProject/BioSample/SRA XML-based submission.
+ * The converter is stateless (the state of a conversion is in its {@link NcbiConversionContext}), so one instance can
+ * serve concurrent requests.
  */
 public class NcbiCairrTemplateInstance2XMLConverter {
   final static Logger log = LoggerFactory.getLogger(NcbiCairrTemplateInstance2XMLConverter.class);
 
-  private List<String> sraIds = new ArrayList<>();
+  private static final String PIPELINE = "cairr"; // prefix of the cache keys
+
+  // BioSample attributes and SRA file attributes read from the template fields, in output order
+  private static final NcbiFieldMappingTable BIOSAMPLE_ATTRIBUTES = NcbiFieldMappingTable.compile(
+      optional(BIOSAMPLE_SUBJECT_ID_FIELD, "SubjectId"),
+      optional(BIOSAMPLE_SYNTHETIC_LIBRARY_FIELD, "SyntheticLibrary"),
+      optional(BIOSAMPLE_ORGANISM_FIELD, "Organism"),
+      optional(BIOSAMPLE_SEX_FIELD, "Sex"),
+      optional(BIOSAMPLE_AGE_FIELD, "Age"),
+      optional(BIOSAMPLE_AGE_EVENT_FIELD, "AgeEvent"),
+      optional(BIOSAMPLE_ANCESTRY_POPULATION_FIELD, "AncestryPopulation"),
+      optional(BIOSAMPLE_ETHNICITY_FIELD, "Ethnicity"),
+      optional(BIOSAMPLE_RACE_FIELD, "Race"),
+      optional(BIOSAMPLE_STRAIN_NAME_FIELD, "StrainName"),
+      optional(BIOSAMPLE_RELATION_TO_OTHER_SUBJECTS_FIELD, "RelationToOtherSubject"),
+      optional(BIOSAMPLE_RELATION_TYPE_FIELD, "RelationType"),
+      optional(BIOSAMPLE_STUDY_GROUP_DESCRIPTION_FIELD, "StudyGroupDescription"),
+      optional(BIOSAMPLE_DIAGNOSIS, "Diagnosis"),
+      optional(BIOSAMPLE_LENGTH_OF_DISEASE, "LengthOfDisease"),
+      optional(BIOSAMPLE_DISEASE_STAGE_FIELD, "DiseaseStage"),
+      optional(BIOSAMPLE_PRIOR_THERAPIES_FIELD, "PriorTherapiesForPrimaryDiseaseUnderStudy"),
+      optional(BIOSAMPLE_IMMUNOGEN_FIELD, "Immunogen"),
+      optional(BIOSAMPLE_INTERVENTION_DEFINITION_FIELD, "InterventionDefinition"),
+      optional(BIOSAMPLE_OTHER_RELEVANT_MEDICAL_HISTORY_FIELD, "OtherRelevantMedicalHistory"),
+      optional(BIOSAMPLE_SAMPLE_TYPE_FIELD, "SampleType"),
+      optional(BIOSAMPLE_TISSUE_FIELD, "Tissue"),
+      optional(BIOSAMPLE_ANATOMIC_SITE_FIELD, "AnatomicSite"),
+      optional(BIOSAMPLE_DISEASE_STATE_OF_SAMPLE_FIELD, "DiseaseStateOfSample"),
+      optional(BIOSAMPLE_SAMPLE_COLLECTION_TIME_FIELD, "SampleCollectionTime"),
+      optional(BIOSAMPLE_COLLECTION_TIME_EVENT_FIELD, "CollectionTimeEventT01"),
+      optional(BIOSAMPLE_BIOMATERIAL_PROVIDER_FIELD, "BiomaterialProvider"),
+      optional(BIOSAMPLE_TISSUE_PROCESSING_FIELD, "TissueProcessing"),
+      optional(BIOSAMPLE_CELL_SUBSET_FIELD, "CellSubset"),
+      optional(BIOSAMPLE_CELL_SUBSET_PHENOTYPE_FIELD, "CellSubsetPhenotype"),
+      optional(BIOSAMPLE_SINGLE_CELL_SORT_FIELD, "SingleCellSort"),
+      optional(BIOSAMPLE_NUMBER_OF_CELLS_IN_EXPERIMENT_FIELD, "NumberOfCellsInExperiment"),
+      optional(BIOSAMPLE_NUMBER_OF_CELLS_PER_SEQUENCING_REACTION_FIELD, "NumberOfCellsPerSequencingReaction"),
+      optional(BIOSAMPLE_CELL_STORAGE_FIELD, "CellSubsetPhenotype"),
+      optional(BIOSAMPLE_CELL_QUALITY_FIELD, "CellQuality"),
+      optional(BIOSAMPLE_CELL_ISOLATION_FIELD, "CellIsolationValue"),
+      // We also set Isolate to 'Cell Isolation'. It is mandatory to fill out this field
+      optional(BIOSAMPLE_CELL_ISOLATION_FIELD, "Isolate"),
+      optional(BIOSAMPLE_PROCESSING_PROTOCOL_FIELD, "CellProcessingProtocol"));
+
+  private static final NcbiFieldMappingTable SRA_FILE_ATTRIBUTES = NcbiFieldMappingTable.compile(
+      optional(SRA_TARGET_SUBSTRATE_FIELD, "target_substrate"),
+      optional(SRA_TARGET_SUBSTRATE_QUALITY_FIELD, "target_substrate_quality"),
+      optional(SRA_NUCLEIC_ACID_PROCESSING_ID_FIELD, "library_ID"),
+      optional(SRA_TEMPLATE_AMOUNT_FIELD, "template_amount"),
+      optional(SRA_LIBRARY_GENERATION_METHOD_FIELD, "library_generation_method"),
+      optional(SRA_LIBRARY_GENERATION_PROTOCOL_FIELD, "design_description"),
+      optional(SRA_PROTOCOL_IDS_FIELD, "protocol_ids"),
+      optional(SRA_TARGET_LOCUS_FOR_PCR_FIELD, "pcr_target_locus"),
+      optional(SRA_FORWARD_PCR_PRIMER_TARGET_LOCATION_FIELD, "forward_pcr_primer_target_location"),
+      optional(SRA_REVERSE_PCR_PRIMER_TARGET_LOCATION_FIELD, "reverse_pcr_primer_target_location"),
+      optional(SRA_COMPLETE_SEQUENCES_FIELD, "complete_sequences"),
+      optional(SRA_PHYSICAL_LINKAGE_OF_DIFFERENT_LOCI_FIELD, "physical_linkage"),
+      optional(SRA_TOTAL_READS_PASSING_QC_FILTER_FIELD, "total_reads_passing_qc_filter"),
+      // library + sequencing strategy + layout + instrument model must be unique according to
+      // https://www.ncbi.nlm.nih.gov/sra/docs/submitmeta/
+      optional(SRA_SEQUENCING_PLATFORM_FIELD, "instrument_model"),
+      optional(SRA_READ_LENGTHS_FIELD, "read_lengths"),
+      optional(SRA_SEQUENCING_FACILITY_FIELD, "sequencing_facility"),
+      optional(SRA_BATCH_NUMBER_FIELD, "batch_number"),
+      optional(SRA_DATE_OF_SEQUENCING_RUN_FIELD, "sequencing_run_date"),
+      optional(SRA_SEQUENCING_KIT_FIELD, "sequencing_kit"),
+      optional(SRA_LIBRARY_STRATEGY_FIELD, "library_strategy"),
+      optional(SRA_LIBRARY_SOURCE_FIELD, "library_source"),
+      optional(SRA_LIBRARY_SELECTION_FIELD, "library_selection"),
+      optional(SRA_LIBRARY_LAYOUT_FIELD, "library_layout"));
 
   private final ObjectFactory submissionObjectFactory = new ObjectFactory();
   private final common.sp.ObjectFactory ncbiCommonObjectFactory = new common.sp.ObjectFactory();
@@ -43,9 +121,45 @@ public class NcbiCairrTemplateInstance2XMLConverter {
   private final String instanceDateFormat = "yyyy-MM-dd";
   private final String xmlDateFormat = "yyyy-MM-dd'-'hh:mm";
 
+  /**
+   * Convert the instance, or reuse the XML of a previous conversion of the same instance (see
+   * {@link NcbiSubmissionXMLCache}).
+   */
   public String convertTemplateInstanceToXML(JsonNode instance) throws JAXBException, DatatypeConfigurationException, ParseException {
+    String instanceHash = NcbiSubmissionXMLCache.hash(instance, INSTANCE_SECTIONS);
+    String cacheKey = NcbiSubmissionXMLCache.getKey(PIPELINE, instanceHash, true);
+    byte[] submissionXml = NcbiSubmissionXMLCache.getInstance().get(cacheKey);
+    if (submissionXml == null) {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      convertTemplateInstanceToXML(instance, instanceHash, outputStream, true);
+      submissionXml = outputStream.toByteArray();
+      NcbiSubmissionXMLCache.getInstance().put(cacheKey, submissionXml);
+    }
+    return new String(submissionXml, StandardCharsets.UTF_8);
+  }
 
-    Submission ncbiSubmission = submissionObjectFactory.createSubmission();
+  /**
+   * Write the submission XML to the stream. The XML cached by a validation of the same instance is reused; otherwise
+   * the XML is written while the instance is traversed: each BioSample and SRA action is written as soon as it is
+   * built, so the size of the instance does not change the memory used by the conversion.
+   */
+  public void convertTemplateInstanceToXML(JsonNode instance, OutputStream outputStream, boolean formatted) throws
+      IOException, JAXBException, DatatypeConfigurationException, ParseException {
+    String instanceHash = NcbiSubmissionXMLCache.hash(instance, INSTANCE_SECTIONS);
+    byte[] submissionXml =
+        NcbiSubmissionXMLCache.getInstance().get(NcbiSubmissionXMLCache.getKey(PIPELINE, instanceHash, formatted));
+    if (submissionXml != null) {
+      outputStream.write(submissionXml);
+    } else {
+      convertTemplateInstanceToXML(instance, instanceHash, outputStream, formatted);
+    }
+  }
+
+  private void convertTemplateInstanceToXML(JsonNode instance, String instanceHash, OutputStream outputStream,
+                                            boolean formatted) throws JAXBException, DatatypeConfigurationException,
+      ParseException {
+
+    NcbiSubmissionXMLStreamWriter submissionWriter = new NcbiSubmissionXMLStreamWriter(outputStream, formatted);
 
     Optional<String> submissionsReleaseDate =
         NcbiPipelinesCommonUtil.getTemplateFieldValue(instance, SUBMISSION_RELEASE_DATE_FIELD);
@@ -54,231 +168,186 @@ public class NcbiCairrTemplateInstance2XMLConverter {
 
     // Create submission description using BioProject details
     Submission.Description submissionDescription = createSubmissionDescription(instance, submissionsReleaseDate);
-    ncbiSubmission.setDescription(submissionDescription);
+    submissionWriter.writeDescription(submissionDescription);
 
     Optional<JsonNode> bioProject = NcbiPipelinesCommonUtil.getTemplateElementNode(instance, BIOPROJECT_ELEMENT);
 
     // BioProject Accession
-    String bioprojectAccession = null;
     Optional<String> bpAccession = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioProject.get(), BIOPROJECT_STUDY_ID_FIELD);
-    if (bpAccession.isPresent()) {
-      bioprojectAccession = bpAccession.get();
-    }
+    String bioprojectAccession = bpAccession.orElse(null);
+
+    NcbiConversionContext context =
+        new NcbiConversionContext(instanceHash, submissionsReleaseDate, bioprojectAccession);
 
     /*** BioSample ***/
     Optional<JsonNode> biosamples = NcbiPipelinesCommonUtil.getTemplateElementNode(instance, BIOSAMPLE_ELEMENT);
 
-    for (JsonNode bioSample : biosamples.get()) {
-
-      // Start <BioSample> section
-      TypeBioSample ncbiBioSample = bioSampleObjectFactory.createTypeBioSample();
-      ncbiBioSample.setSchemaVersion(BIOSAMPLE_SCHEMA_VERSION);
+    NcbiParallelActionWriter.writeActions(biosamples.get(),
+        (bioSample, index) -> createBioSampleAction(bioSample, index, context), submissionWriter);
 
-      // Sample Name
-      Optional<String> sampleName = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_SAMPLE_ID_FIELD);
-      if (sampleName.isPresent()) {
-        ncbiBioSample.setSampleId(createBioSampleIdentifier(sampleName.get()));
-      }
-
-      // Submission descriptor
-      ncbiBioSample.setDescriptor(createDescriptor(BIOSAMPLE_SUBMISSION_DESCRIPTOR, BIOSAMPLE_SUBMISSION_DESCRIPTOR));
+    /*** SRA ***/
+    Optional<JsonNode> sras = NcbiPipelinesCommonUtil.getTemplateElementNode(instance, SRA_ELEMENT);
 
-      // Organism
-      ncbiBioSample.setOrganism(createOrganism(BIOSAMPLE_ORGANISM));
+    // Retrieve the SRAs from the instance
+    NcbiParallelActionWriter.writeActions(sras.get(),
+        (sra, index) -> createSraAction(sra, index, context), submissionWriter);
 
-      // Package
-      ncbiBioSample.setPackage(BIOSAMPLE_PACKAGE);
+    // End the submission document
+    submissionWriter.close();
+  }
 
-      // Attributes
-      ncbiBioSample.setAttributes(createBioSampleAttributes(bioSample, submissionsReleaseDate));
+  private Submission.Action createBioSampleAction(JsonNode bioSample, int index, NcbiConversionContext context)
+      throws DatatypeConfigurationException, ParseException {
 
-      // XmlContent
-      // Development Note: The original NCBI submission doesn't include the BioSample element, so it
-      // is required to modify the submission.xsd file (See submission.xsd:441)
-      TypeInlineData.XmlContent xmlContent = submissionObjectFactory.createTypeInlineDataXmlContent();
-      xmlContent.setBioSample(ncbiBioSample);
+    // Start <BioSample> section
+    TypeBioSample ncbiBioSample = bioSampleObjectFactory.createTypeBioSample();
+    ncbiBioSample.setSchemaVersion(BIOSAMPLE_SCHEMA_VERSION);
 
-      // Data
-      Submission.Action.AddData.Data bioSampleData = submissionObjectFactory.createSubmissionActionAddDataData();
-      bioSampleData.setContentType("XML");
-      bioSampleData.setXmlContent(xmlContent);
+    // Sample Name
+    Optional<String> sampleName = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_SAMPLE_ID_FIELD);
+    if (sampleName.isPresent()) {
+      ncbiBioSample.setSampleId(createBioSampleIdentifier(sampleName.get()));
+    }
 
-      // Identifier
-      TypeIdentifier actionIdentifier = ncbiCommonObjectFactory.createTypeIdentifier();
-      TypeSPUID bioSampleSpuid = ncbiCommonObjectFactory.createTypeSPUID();
-      bioSampleSpuid.setSpuidNamespace(CEDAR_NAMESPACE);
-      bioSampleSpuid.setValue(createNewActionId());
-      actionIdentifier.setSPUID(bioSampleSpuid);
+    // Submission descriptor
+    ncbiBioSample.setDescriptor(createDescriptor(BIOSAMPLE_SUBMISSION_DESCRIPTOR, BIOSAMPLE_SUBMISSION_DESCRIPTOR));
 
-      // Action/AddData
-      Submission.Action.AddData bioSampleSubmissionActionAddData = submissionObjectFactory.createSubmissionActionAddData();
-      bioSampleSubmissionActionAddData.setTargetDb(TypeTargetDb.BIO_SAMPLE);
-      bioSampleSubmissionActionAddData.setData(bioSampleData);
-      bioSampleSubmissionActionAddData.setIdentifier(actionIdentifier);
+    // Organism
+    ncbiBioSample.setOrganism(createOrganism(BIOSAMPLE_ORGANISM));
 
-      // Action
-      Submission.Action bioSampleAction = submissionObjectFactory.createSubmissionAction();
-      bioSampleAction.setAddData(bioSampleSubmissionActionAddData);
-      ncbiSubmission.getAction().add(bioSampleAction);
+    // Package
+    ncbiBioSample.setPackage(BIOSAMPLE_PACKAGE);
 
-    }
+    // Attributes
+    ncbiBioSample.setAttributes(createBioSampleAttributes(bioSample, context.getSubmissionsReleaseDate()));
+
+    // XmlContent
+    // Development Note: The original NCBI submission doesn't include the BioSample element, so it
+    // is required to modify the submission.xsd file (See submission.xsd:441)
+    TypeInlineData.XmlContent xmlContent = submissionObjectFactory.createTypeInlineDataXmlContent();
+    xmlContent.setBioSample(ncbiBioSample);
+
+    // Data
+    Submission.Action.AddData.Data bioSampleData = submissionObjectFactory.createSubmissionActionAddDataData();
+    bioSampleData.setContentType("XML");
+    bioSampleData.setXmlContent(xmlContent);
+
+    // Identifier
+    TypeIdentifier actionIdentifier = ncbiCommonObjectFactory.createTypeIdentifier();
+    TypeSPUID bioSampleSpuid = ncbiCommonObjectFactory.createTypeSPUID();
+    bioSampleSpuid.setSpuidNamespace(CEDAR_NAMESPACE);
+    bioSampleSpuid.setValue(context.createNewActionId(index));
+    actionIdentifier.setSPUID(bioSampleSpuid);
+
+    // Action/AddData
+    Submission.Action.AddData bioSampleSubmissionActionAddData = submissionObjectFactory.createSubmissionActionAddData();
+    bioSampleSubmissionActionAddData.setTargetDb(TypeTargetDb.BIO_SAMPLE);
+    bioSampleSubmissionActionAddData.setData(bioSampleData);
+    bioSampleSubmissionActionAddData.setIdentifier(actionIdentifier);
+
+    // Action
+    Submission.Action bioSampleAction = submissionObjectFactory.createSubmissionAction();
+    bioSampleAction.setAddData(bioSampleSubmissionActionAddData);
+    return bioSampleAction;
+  }
 
-    /*** SRA ***/
-    Optional<JsonNode> sras = NcbiPipelinesCommonUtil.getTemplateElementNode(instance, SRA_ELEMENT);
+  private Submission.Action createSraAction(JsonNode sra, int index, NcbiConversionContext context) throws
+      DatatypeConfigurationException, ParseException {
 
-    // Retrieve the SRAs from the instance
-    for (JsonNode sra : sras.get()) {
+    Optional<String> submissionsReleaseDate = context.getSubmissionsReleaseDate();
+    String bioprojectAccession = context.getBioprojectAccession();
 
-      Submission.Action.AddFiles sraAddFiles = submissionObjectFactory.createSubmissionActionAddFiles();
-      sraAddFiles.setTargetDb(TypeTargetDb.SRA);
+    Submission.Action.AddFiles sraAddFiles = submissionObjectFactory.createSubmissionActionAddFiles();
+    sraAddFiles.setTargetDb(TypeTargetDb.SRA);
 
-      // File type and file names
-      Optional<String> fileType = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_FILE_TYPE_FIELD);
+    // File type and file names
+    Optional<String> fileType = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_FILE_TYPE_FIELD);
 
-      if (fileType.isPresent()) {
+    if (fileType.isPresent()) {
 
-        if (sra.hasNonNull(SRA_FILE_NAME_FIELD) && sra.get(SRA_FILE_NAME_FIELD).size() > 0) {
+      if (sra.hasNonNull(SRA_FILE_NAME_FIELD) && sra.get(SRA_FILE_NAME_FIELD).size() > 0) {
 
-          Iterator<JsonNode> fileNameFieldsIt = sra.get(SRA_FILE_NAME_FIELD).iterator();
+        Iterator<JsonNode> fileNameFieldsIt = sra.get(SRA_FILE_NAME_FIELD).iterator();
 
-          while (fileNameFieldsIt.hasNext()) {
+        while (fileNameFieldsIt.hasNext()) {
 
-            String fileNameField = fileNameFieldsIt.next().asText();
+          String fileNameField = fileNameFieldsIt.next().asText();
 
-            Optional<String> fileName = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, fileNameField);
+          Optional<String> fileName = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, fileNameField);
 
-            if (fileName.isPresent()) {
+          if (fileName.isPresent()) {
 
-              Submission.Action.AddFiles.File sraFile = submissionObjectFactory.createSubmissionActionAddFilesFile();
-              sraFile.setFilePath(fileName.get());
-              sraFile.setDataType(fileType.get());
-              sraAddFiles.getFile().add(sraFile);
+            Submission.Action.AddFiles.File sraFile = submissionObjectFactory.createSubmissionActionAddFilesFile();
+            sraFile.setFilePath(fileName.get());
+            sraFile.setDataType(fileType.get());
+            sraAddFiles.getFile().add(sraFile);
 
-            } else {
-              throw new IllegalArgumentException("File name field not present: " + fileNameField);
-            }
+          } else {
+            throw new IllegalArgumentException("File name field not present: " + fileNameField);
           }
-        } else {
-          // In this case there is a file type but no file names, so we throw an exception
-          throw new IllegalArgumentException("Missing array of file names");
         }
       } else {
-        // do nothing
-      }
-
-      // Reference to BioSample ID (Sample Name)
-      Optional<String> sraSampleName = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_SAMPLE_ID_FIELD);
-      if (sraSampleName.isPresent()) {
-        TypeFileAttributeRefId bioSampleAttributeRefId = submissionObjectFactory.createTypeFileAttributeRefId();
-        bioSampleAttributeRefId.setName("BioSample");
-        TypeRefId refId = ncbiCommonObjectFactory.createTypeRefId();
-        TypeSPUID spuid = ncbiCommonObjectFactory.createTypeSPUID();
-        spuid.setSpuidNamespace(CEDAR_NAMESPACE);
-        spuid.setValue(sraSampleName.get());
-        refId.setSPUID(spuid);
-        bioSampleAttributeRefId.setRefId(refId);
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(bioSampleAttributeRefId);
-      }
-
-      // Reference to BioProject ID
-      if (!bioprojectAccession.isEmpty()) {
-        TypeFileAttributeRefId bioProjectAttributeRefId = submissionObjectFactory.createTypeFileAttributeRefId();
-        bioProjectAttributeRefId.setName("BioProject");
-        TypeRefId refId = ncbiCommonObjectFactory.createTypeRefId();
-        TypePrimaryId primaryId = ncbiCommonObjectFactory.createTypePrimaryId();
-        primaryId.setDb("BioProject");
-        primaryId.setValue(bioprojectAccession);
-        refId.setPrimaryId(primaryId);
-        bioProjectAttributeRefId.setRefId(refId);
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(bioProjectAttributeRefId);
-      }
-
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_TARGET_SUBSTRATE_FIELD, "target_substrate");
-
-      // Target Substrate Quality
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_TARGET_SUBSTRATE_QUALITY_FIELD, "target_substrate_quality");
-      // Nucleic Acid Processing ID
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_NUCLEIC_ACID_PROCESSING_ID_FIELD, "library_ID");
-      // Template Amount
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_TEMPLATE_AMOUNT_FIELD, "template_amount");
-      // Library Generation Method
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_LIBRARY_GENERATION_METHOD_FIELD, "library_generation_method");
-      // Library Generation Protocol
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_LIBRARY_GENERATION_PROTOCOL_FIELD, "design_description");
-      // Protocol ID
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_PROTOCOL_IDS_FIELD, "protocol_ids");
-      // Target Locus for PCR
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_TARGET_LOCUS_FOR_PCR_FIELD, "pcr_target_locus");
-      // Forward PCR Primer Target Location
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_FORWARD_PCR_PRIMER_TARGET_LOCATION_FIELD, "forward_pcr_primer_target_location");
-      // Reverse PCR Primer Target Location
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_REVERSE_PCR_PRIMER_TARGET_LOCATION_FIELD, "reverse_pcr_primer_target_location");
-      // Complete Sequence
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_COMPLETE_SEQUENCES_FIELD, "complete_sequences");
-      // Physical Linkage of Different Loci
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_PHYSICAL_LINKAGE_OF_DIFFERENT_LOCI_FIELD, "physical_linkage");
-      // Total Reads Passing QC Filter
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_TOTAL_READS_PASSING_QC_FILTER_FIELD, "total_reads_passing_qc_filter");
-
-      // library + sequencing strategy + layout + instrument model must be unique according to
-      // https://www.ncbi.nlm.nih.gov/sra/docs/submitmeta/
-      // Sequencing Platform
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_SEQUENCING_PLATFORM_FIELD, "instrument_model");
-      // Sequencing Read Lengths
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_READ_LENGTHS_FIELD, "read_lengths");
-      // Sequencing Facility
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_SEQUENCING_FACILITY_FIELD, "sequencing_facility");
-      // Batch Number
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_BATCH_NUMBER_FIELD, "batch_number");
-      // Date of Sequencing Run
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_DATE_OF_SEQUENCING_RUN_FIELD, "sequencing_run_date");
-      // Sequencing Kit
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_SEQUENCING_KIT_FIELD, "sequencing_kit");
-      // Library Strategy
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_LIBRARY_STRATEGY_FIELD, "library_strategy");
-      // Library Source
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_LIBRARY_SOURCE_FIELD, "library_source");
-      // Library Selection
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_LIBRARY_SELECTION_FIELD, "library_selection");
-      // Library Layout
-      sraAddFiles = setSraFileAttribute(sraAddFiles, sra, SRA_LIBRARY_LAYOUT_FIELD, "library_layout");
-
-      // Release Status
-      if (submissionsReleaseDate.isPresent() && !submissionsReleaseDate.isEmpty()) {  // Use the top-level release date
-        TypeReleaseStatus typeReleaseStatus = submissionObjectFactory.createTypeReleaseStatus();
-        TypeReleaseStatus.SetReleaseDate filesReleaseDate = submissionObjectFactory.createTypeReleaseStatusSetReleaseDate();
-        filesReleaseDate.setReleaseDate(createXMLGregorianCalendar(submissionsReleaseDate.get(), instanceDateFormat));
-        typeReleaseStatus.setSetReleaseDate(filesReleaseDate);
-        sraAddFiles.setStatus(typeReleaseStatus);
+        // In this case there is a file type but no file names, so we throw an exception
+        throw new IllegalArgumentException("Missing array of file names");
       }
+    } else {
+      // do nothing
+    }
 
-      // End of AIRR SRA Elements
+    // Reference to BioSample ID (Sample Name)
+    Optional<String> sraSampleName = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_SAMPLE_ID_FIELD);
+    if (sraSampleName.isPresent()) {
+      TypeFileAttributeRefId bioSampleAttributeRefId = submissionObjectFactory.createTypeFileAttributeRefId();
+      bioSampleAttributeRefId.setName("BioSample");
+      TypeRefId refId = ncbiCommonObjectFactory.createTypeRefId();
+      TypeSPUID spuid = ncbiCommonObjectFactory.createTypeSPUID();
+      spuid.setSpuidNamespace(CEDAR_NAMESPACE);
+      spuid.setValue(sraSampleName.get());
+      refId.setSPUID(spuid);
+      bioSampleAttributeRefId.setRefId(refId);
+      sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(bioSampleAttributeRefId);
+    }
 
-      TypeSPUID sraSampleSpuid = ncbiCommonObjectFactory.createTypeSPUID();
-      sraSampleSpuid.setSpuidNamespace(CEDAR_NAMESPACE);
-      sraSampleSpuid.setValue(createNewSraId());
+    // Reference to BioProject ID
+    if (!bioprojectAccession.isEmpty()) {
+      TypeFileAttributeRefId bioProjectAttributeRefId = submissionObjectFactory.createTypeFileAttributeRefId();
+      bioProjectAttributeRefId.setName("BioProject");
+      TypeRefId refId = ncbiCommonObjectFactory.createTypeRefId();
+      TypePrimaryId primaryId = ncbiCommonObjectFactory.createTypePrimaryId();
+      primaryId.setDb("BioProject");
+      primaryId.setValue(bioprojectAccession);
+      refId.setPrimaryId(primaryId);
+      bioProjectAttributeRefId.setRefId(refId);
+      sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(bioProjectAttributeRefId);
+    }
 
-      TypeIdentifier sraIdentifier = ncbiCommonObjectFactory.createTypeIdentifier();
-      sraIdentifier.setSPUID(sraSampleSpuid);
+    SRA_FILE_ATTRIBUTES.apply(sra, (attributeName, value) ->
+        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(createFileAttribute(attributeName, value)));
 
-      sraAddFiles.setIdentifier(sraIdentifier);
+    // Release Status
+    if (submissionsReleaseDate.isPresent() && !submissionsReleaseDate.isEmpty()) {  // Use the top-level release date
+      TypeReleaseStatus typeReleaseStatus = submissionObjectFactory.createTypeReleaseStatus();
+      TypeReleaseStatus.SetReleaseDate filesReleaseDate = submissionObjectFactory.createTypeReleaseStatusSetReleaseDate();
+      filesReleaseDate.setReleaseDate(createXMLGregorianCalendar(submissionsReleaseDate.get(), instanceDateFormat));
+      typeReleaseStatus.setSetReleaseDate(filesReleaseDate);
+      sraAddFiles.setStatus(typeReleaseStatus);
+    }
 
-      // Action
-      Submission.Action sraAction = submissionObjectFactory.createSubmissionAction();
-      sraAction.setAddFiles(sraAddFiles);
+    // End of AIRR SRA Elements
 
-      ncbiSubmission.getAction().add(sraAction);
+    TypeSPUID sraSampleSpuid = ncbiCommonObjectFactory.createTypeSPUID();
+    sraSampleSpuid.setSpuidNamespace(CEDAR_NAMESPACE);
+    sraSampleSpuid.setValue(context.createNewSraId(index));
 
-    }
+    TypeIdentifier sraIdentifier = ncbiCommonObjectFactory.createTypeIdentifier();
+    sraIdentifier.setSPUID(sraSampleSpuid);
 
-    // Generate XML from the submission instance
-    StringWriter writer = new StringWriter();
-    JAXBContext ctx = JAXBContext.newInstance(Submission.class);
-    Marshaller marshaller = ctx.createMarshaller();
-    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-    marshaller.marshal(ncbiSubmission, writer);
+    sraAddFiles.setIdentifier(sraIdentifier);
 
-    return writer.toString();
+    // Action
+    Submission.Action sraAction = submissionObjectFactory.createSubmissionAction();
+    sraAction.setAddFiles(sraAddFiles);
+    return sraAction;
   }
 
   private TypeOrganism createOrganism(String organismName) {
@@ -368,45 +437,8 @@ public class NcbiCairrTemplateInstance2XMLConverter {
       }
     }
 
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_SUBJECT_ID_FIELD, "SubjectId");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_SYNTHETIC_LIBRARY_FIELD, "SyntheticLibrary");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_ORGANISM_FIELD, "Organism");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_SEX_FIELD, "Sex");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_AGE_FIELD, "Age");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_AGE_EVENT_FIELD, "AgeEvent");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_ANCESTRY_POPULATION_FIELD, "AncestryPopulation");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_ETHNICITY_FIELD, "Ethnicity");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_RACE_FIELD, "Race");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_STRAIN_NAME_FIELD, "StrainName");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_RELATION_TO_OTHER_SUBJECTS_FIELD, "RelationToOtherSubject");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_RELATION_TYPE_FIELD, "RelationType");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_STUDY_GROUP_DESCRIPTION_FIELD, "StudyGroupDescription");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_DIAGNOSIS, "Diagnosis");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_LENGTH_OF_DISEASE, "LengthOfDisease");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_DISEASE_STAGE_FIELD, "DiseaseStage");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_PRIOR_THERAPIES_FIELD, "PriorTherapiesForPrimaryDiseaseUnderStudy");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_IMMUNOGEN_FIELD, "Immunogen");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_INTERVENTION_DEFINITION_FIELD, "InterventionDefinition");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_OTHER_RELEVANT_MEDICAL_HISTORY_FIELD, "OtherRelevantMedicalHistory");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_SAMPLE_TYPE_FIELD, "SampleType");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_TISSUE_FIELD, "Tissue");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_ANATOMIC_SITE_FIELD, "AnatomicSite");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_DISEASE_STATE_OF_SAMPLE_FIELD, "DiseaseStateOfSample");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_SAMPLE_COLLECTION_TIME_FIELD, "SampleCollectionTime");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_COLLECTION_TIME_EVENT_FIELD, "CollectionTimeEventT01");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_BIOMATERIAL_PROVIDER_FIELD, "BiomaterialProvider");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_TISSUE_PROCESSING_FIELD, "TissueProcessing");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_CELL_SUBSET_FIELD, "CellSubset");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_CELL_SUBSET_PHENOTYPE_FIELD, "CellSubsetPhenotype");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_SINGLE_CELL_SORT_FIELD, "SingleCellSort");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_NUMBER_OF_CELLS_IN_EXPERIMENT_FIELD, "NumberOfCellsInExperiment");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_NUMBER_OF_CELLS_PER_SEQUENCING_REACTION_FIELD, "NumberOfCellsPerSequencingReaction");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_CELL_STORAGE_FIELD, "CellSubsetPhenotype");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_CELL_QUALITY_FIELD, "CellQuality");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_CELL_ISOLATION_FIELD, "CellIsolationValue");
-    // We also set Isolate to 'Cell Isolation'. It is mandatory to fill out this field
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_CELL_ISOLATION_FIELD, "Isolate");
-    bioSampleAttributes = setBiosampleAttribute(bioSampleAttributes, bioSample, BIOSAMPLE_PROCESSING_PROTOCOL_FIELD, "CellProcessingProtocol");
+    BIOSAMPLE_ATTRIBUTES.apply(bioSample, (attributeName, value) ->
+        bioSampleAttributes.getAttribute().add(createAttribute(attributeName, value)));
 
     // Custom attribute to specify that the submission was done using CEDAR
     bioSampleAttributes.getAttribute().add(createAttribute("SubmissionTool", BIOSAMPLE_SUBMISSION_TOOL));
@@ -427,18 +459,6 @@ public class NcbiCairrTemplateInstance2XMLConverter {
     return target.format(d);
   }
 
-  private String createNewSraId() {
-    String id = "SRA-" + UUID.randomUUID();
-    sraIds.add(id);
-    return id;
-  }
-
-  private String createNewActionId() {
-    String id = "Action-" + UUID.randomUUID();
-    sraIds.add(id);
-    return id;
-  }
-
   private TypeAttribute createAttribute(String attributeName, String attributeValue) {
     TypeAttribute attribute = bioSampleObjectFactory.createTypeAttribute();
     attribute.setAttributeName(attributeName);
@@ -446,25 +466,11 @@ public class NcbiCairrTemplateInstance2XMLConverter {
     return attribute;
   }
 
-  private TypeBioSample.Attributes setBiosampleAttribute(TypeBioSample.Attributes attributes, JsonNode biosample,
-                                                               String fieldName, String attributeName) {
-    Optional<String> fieldValue = NcbiPipelinesCommonUtil.getTemplateFieldValue(biosample, fieldName);
-    if (fieldValue.isPresent()) {
-      attributes.getAttribute().add(createAttribute(attributeName, fieldValue.get()));
-    }
-    return attributes;
-  }
-
-  private Submission.Action.AddFiles setSraFileAttribute(Submission.Action.AddFiles addFiles, JsonNode sra, String fieldName,
-                                                     String attributeName) {
-    Optional<String> fieldValue = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, fieldName);
-    if (fieldValue.isPresent()) {
-      TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-      fileAttribute.setName(attributeName);
-      fileAttribute.setValue(fieldValue.get());
-      addFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-    }
-    return addFiles;
+  private TypeFileAttribute createFileAttribute(String attributeName, String attributeValue) {
+    TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
+    fileAttribute.setName(attributeName);
+    fileAttribute.setValue(attributeValue);
+    return fileAttribute;
   }
 
 
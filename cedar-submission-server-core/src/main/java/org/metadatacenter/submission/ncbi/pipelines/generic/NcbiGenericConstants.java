@@ -163,6 +163,15 @@ public class NcbiGenericConstants {
           SRA_FILE_NAME_FIELD
       ));
 
+  // Top-level fields of the instance used by the conversion to XML
+  protected static final List<String> INSTANCE_SECTIONS =
+      Collections.unmodifiableList(Arrays.asList(
+          SUBMISSION_RELEASE_DATE_FIELD,
+          BIOPROJECT_ELEMENT,
+          BIOSAMPLE_ELEMENT,
+          SRA_ELEMENT
+      ));
+
   // PRIVATE //
 
   /**
@@ -2,42 +2,58 @@ package org.metadatacenter.submission.ncbi.pipelines.generic;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.FileUtils;
 import org.metadatacenter.submission.ncbi.NcbiConstants;
-import org.metadatacenter.util.json.JsonMapper;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiInstanceReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.datatype.DatatypeConfigurationException;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 
+import static org.metadatacenter.submission.ncbi.pipelines.generic.NcbiGenericConstants.INSTANCE_SECTIONS;
+
 public class NcbiGenericSubmissionXMLFileGenerator implements org.metadatacenter.submission.ncbi.NcbiSubmissionXMLFileGenerator {
 
   final static Logger logger = LoggerFactory.getLogger(NcbiGenericSubmissionXMLFileGenerator.class);
 
-  public File generateSubmissionXmlFile(File instanceFile, String submissionLocalFolderPath) throws
-      IOException, JAXBException, DatatypeConfigurationException {
+  // The converter is stateless, so all the submissions share it
+  private static final NcbiGenericTemplateInstance2XMLConverter converter = new NcbiGenericTemplateInstance2XMLConverter();
+  // Reads only the sections of the instance that are converted, skipping the JSON-LD contexts
+  private static final NcbiInstanceReader instanceReader = new NcbiInstanceReader(INSTANCE_SECTIONS);
 
-    NcbiGenericTemplateInstance2XMLConverter converter = new NcbiGenericTemplateInstance2XMLConverter();
+  public File generateSubmissionXmlFile(File instanceFile, String submissionLocalFolderPath) throws
+      IOException, JAXBException, DatatypeConfigurationException, ParseException {
 
-    String submissionXml = null;
+    File submissionXmlFile = new File(submissionLocalFolderPath + "/" + NcbiConstants.SUBMISSION_XML_FILE_NAME);
+    // The XML goes to a temporary file as it is generated, and replaces the submission.xml file only when complete
+    File tmpXmlFile =
+        File.createTempFile(NcbiConstants.SUBMISSION_XML_FILE_NAME, ".tmp", submissionXmlFile.getParentFile());
+    boolean generated = false;
     try {
-      JsonNode instanceJson = (new ObjectMapper()).readTree(instanceFile);
-      submissionXml = converter.convertTemplateInstanceToXML(instanceJson);
-    } catch (JsonMappingException e) {
-      throw new IOException("The instance uploaded is not compatible with the CAIRR template", e);
-    } catch (ParseException e) {
-      logger.error(e.getMessage());
+      try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tmpXmlFile))) {
+        JsonNode instanceJson = instanceReader.read(instanceFile);
+        converter.convertTemplateInstanceToXML(instanceJson, outputStream, NcbiConstants.SUBMISSION_XML_FORMATTED);
+      } catch (JsonMappingException e) {
+        throw new IOException("The instance uploaded is not compatible with the CAIRR template", e);
+      }
+      Files.move(tmpXmlFile.toPath(), submissionXmlFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      generated = true;
+    } finally {
+      if (!generated) {
+        Files.deleteIfExists(tmpXmlFile.toPath());
+      }
     }
 
-    logger.info("XML: " + submissionXml);
-
-    File submissionXmlFile = new File(submissionLocalFolderPath + "/" + NcbiConstants.SUBMISSION_XML_FILE_NAME);
-    FileUtils.writeStringToFile(submissionXmlFile, submissionXml);
+    logger.info("XML: " + submissionXmlFile.getAbsolutePath() + " (" + submissionXmlFile.length() + " bytes)");
     return submissionXmlFile;
   }
 }
@@ -7,33 +7,78 @@ import com.fasterxml.jackson.databind.JsonNode;
 import common.sp.*;
 import generated.ObjectFactory;
 import generated.*;
+import org.metadatacenter.submission.ncbi.NcbiSubmissionXMLStreamWriter;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiConversionContext;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiFieldMappingTable;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiParallelActionWriter;
 import org.metadatacenter.submission.ncbi.pipelines.NcbiPipelinesCommonUtil;
+import org.metadatacenter.submission.ncbi.pipelines.NcbiSubmissionXMLCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
-import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
+import static org.metadatacenter.submission.ncbi.pipelines.NcbiFieldMapping.optional;
 import static org.metadatacenter.submission.ncbi.pipelines.generic.NcbiGenericConstants.*;
 
 /**
  * Convert a CEDAR JSON Schema-based NCBI2CEDAR instance to a BioProject/BioSample/SRA XML-based submission.
+ * The converter is stateless (the state of a conversion is in its {@link NcbiConversionContext}), so one instance can
+ * serve concurrent requests.
  */
 public class NcbiGenericTemplateInstance2XMLConverter {
   final static Logger log = LoggerFactory.getLogger(NcbiGenericTemplateInstance2XMLConverter.class);
 
-  private List<String> sraIds = new ArrayList<>();
+  private static final String PIPELINE = "generic"; // prefix of the cache keys
+
+  // BioSample attributes and SRA file attributes read from the template fields, in output order
+  private static final NcbiFieldMappingTable BIOSAMPLE_ATTRIBUTES = NcbiFieldMappingTable.compile(
+      optional(BIOSAMPLE_SAMPLE_TITLE_FIELD, "sample_title"),
+      optional(BIOSAMPLE_ORGANISM_FIELD, "organism"),
+      optional(BIOSAMPLE_ISOLATE_FIELD, "isolate"),
+      optional(BIOSAMPLE_AGE_FIELD, "age"),
+      optional(BIOSAMPLE_BIOMATERIAL_PROVIDER_FIELD, "biomaterial_provider"),
+      optional(BIOSAMPLE_SEX_FIELD, "sex"),
+      optional(BIOSAMPLE_TISSUE_FIELD, "tissue"),
+      optional(BIOSAMPLE_CELL_LINE_FIELD, "cell_line"),
+      optional(BIOSAMPLE_CELL_TYPE_FIELD, "cell_type"),
+      optional(BIOSAMPLE_CELL_SUBTYPE_FIELD, "cell_subtype"),
+      optional(BIOSAMPLE_CULTURE_COLLECTION_FIELD, "culture_collection"),
+      optional(BIOSAMPLE_DEVELOPMENT_STAGE_FIELD, "development_stage"),
+      optional(BIOSAMPLE_DISEASE_FIELD, "disease"),
+      optional(BIOSAMPLE_DISEASE_STAGE_FIELD, "disease_stage"),
+      optional(BIOSAMPLE_ETHNICITY_FIELD, "ethnicity"),
+      optional(BIOSAMPLE_HEALTH_STATE_FIELD, "health_state"),
+      optional(BIOSAMPLE_KARYOTYPE_FIELD, "karyotype"),
+      optional(BIOSAMPLE_PHENOTYPE_FIELD, "phenotype"),
+      optional(BIOSAMPLE_POPULATION_FIELD, "population"),
+      optional(BIOSAMPLE_RACE_FIELD, "race"),
+      optional(BIOSAMPLE_SAMPLE_TYPE_FIELD, "sample_type"),
+      optional(BIOSAMPLE_TREATMENT_FIELD, "treatment"));
+
+  private static final NcbiFieldMappingTable SRA_FILE_ATTRIBUTES = NcbiFieldMappingTable.compile(
+      optional(SRA_LIBRARY_ID_FIELD, "library_ID"),
+      optional(SRA_TITLE_FIELD, "title"),
+      optional(SRA_LIBRARY_STRATEGY_FIELD, "library_strategy"),
+      optional(SRA_LIBRARY_SOURCE_FIELD, "library_source"),
+      optional(SRA_LIBRARY_SELECTION_FIELD, "library_selection"),
+      optional(SRA_LIBRARY_LAYOUT_FIELD, "library_layout"),
+      optional(SRA_PLATFORM_FIELD, "platform"),
+      optional(SRA_INSTRUMENT_MODEL_FIELD, "instrument_model"),
+      optional(SRA_DESIGN_DESCRIPTION_FIELD, "design_description"));
 
   private final ObjectFactory submissionObjectFactory = new ObjectFactory();
   private final common.sp.ObjectFactory ncbiCommonObjectFactory = new common.sp.ObjectFactory();
@@ -43,9 +88,45 @@ public class NcbiGenericTemplateInstance2XMLConverter {
   private final String instanceDateFormat = "yyyy-MM-dd";
   private final String xmlDateFormat = "yyyy-MM-dd'-'hh:mm";
 
+  /**
+   * Convert the instance, or reuse the XML of a previous conversion of the same instance (see
+   * {@link NcbiSubmissionXMLCache}).
+   */
   public String convertTemplateInstanceToXML(JsonNode instance) throws JAXBException, DatatypeConfigurationException, ParseException {
+    String instanceHash = NcbiSubmissionXMLCache.hash(instance, INSTANCE_SECTIONS);
+    String cacheKey = NcbiSubmissionXMLCache.getKey(PIPELINE, instanceHash, true);
+    byte[] submissionXml = NcbiSubmissionXMLCache.getInstance().get(cacheKey);
+    if (submissionXml == null) {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      convertTemplateInstanceToXML(instance, instanceHash, outputStream, true);
+      submissionXml = outputStream.toByteArray();
+      NcbiSubmissionXMLCache.getInstance().put(cacheKey, submissionXml);
+    }
+    return new String(submissionXml, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write the submission XML to the stream. The XML cached by a validation of the same instance is reused; otherwise
+   * the XML is written while the instance is traversed: each BioSample and SRA action is written as soon as it is
+   * built, so the size of the instance does not change the memory used by the conversion.
+   */
+  public void convertTemplateInstanceToXML(JsonNode instance, OutputStream outputStream, boolean formatted) throws
+      IOException, JAXBException, DatatypeConfigurationException, ParseException {
+    String instanceHash = NcbiSubmissionXMLCache.hash(instance, INSTANCE_SECTIONS);
+    byte[] submissionXml =
+        NcbiSubmissionXMLCache.getInstance().get(NcbiSubmissionXMLCache.getKey(PIPELINE, instanceHash, formatted));
+    if (submissionXml != null) {
+      outputStream.write(submissionXml);
+    } else {
+      convertTemplateInstanceToXML(instance, instanceHash, outputStream, formatted);
+    }
+  }
 
-    Submission ncbiSubmission = submissionObjectFactory.createSubmission();
+  private void convertTemplateInstanceToXML(JsonNode instance, String instanceHash, OutputStream outputStream,
+                                            boolean formatted) throws JAXBException, DatatypeConfigurationException,
+      ParseException {
+
+    NcbiSubmissionXMLStreamWriter submissionWriter = new NcbiSubmissionXMLStreamWriter(outputStream, formatted);
 
     Optional<String> submissionsReleaseDate =
         NcbiPipelinesCommonUtil.getTemplateFieldValue(instance, SUBMISSION_RELEASE_DATE_FIELD);
@@ -54,254 +135,178 @@ public class NcbiGenericTemplateInstance2XMLConverter {
 
     // Create submission description using BioProject details
     Submission.Description submissionDescription = createSubmissionDescription(instance, submissionsReleaseDate);
-    ncbiSubmission.setDescription(submissionDescription);
+    submissionWriter.writeDescription(submissionDescription);
 
     Optional<JsonNode> bioProject = NcbiPipelinesCommonUtil.getTemplateElementNode(instance, BIOPROJECT_ELEMENT);
 
     // BioProject Accession
-    String bioprojectAccession = null;
     Optional<String> bpAccession = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioProject.get(), BIOPROJECT_STUDY_ID_FIELD);
-    if (bpAccession.isPresent()) {
-      bioprojectAccession = bpAccession.get();
-    }
+    String bioprojectAccession = bpAccession.orElse(null);
+
+    NcbiConversionContext context =
+        new NcbiConversionContext(instanceHash, submissionsReleaseDate, bioprojectAccession);
 
     /*** BioSample ***/
     Optional<JsonNode> biosamples = NcbiPipelinesCommonUtil.getTemplateElementNode(instance, BIOSAMPLE_ELEMENT);
 
-    for (JsonNode bioSample : biosamples.get()) {
-
-      // Start <BioSample> section
-      TypeBioSample ncbiBioSample = bioSampleObjectFactory.createTypeBioSample();
-      ncbiBioSample.setSchemaVersion(BIOSAMPLE_SCHEMA_VERSION);
-
-      // Sample Name
-      Optional<String> sampleName = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_SAMPLE_NAME_FIELD);
-      if (sampleName.isPresent()) {
-        ncbiBioSample.setSampleId(createBioSampleIdentifier(sampleName.get()));
-      }
-
-      // Submission descriptor
-      ncbiBioSample.setDescriptor(createDescriptor(BIOSAMPLE_SUBMISSION_DESCRIPTOR, BIOSAMPLE_SUBMISSION_DESCRIPTOR));
-
-      // Organism
-      ncbiBioSample.setOrganism(createOrganism(BIOSAMPLE_ORGANISM));
-
-      // Package
-      ncbiBioSample.setPackage(BIOSAMPLE_PACKAGE);
-
-      // Attributes
-      ncbiBioSample.setAttributes(createBioSampleAttributes(bioSample, submissionsReleaseDate));
-
-      // XmlContent
-      // Development Note: The original NCBI submission doesn't include the BioSample element, so it
-      // is required to modify the submission.xsd file (See submission.xsd:441)
-      TypeInlineData.XmlContent xmlContent = submissionObjectFactory.createTypeInlineDataXmlContent();
-      xmlContent.setBioSample(ncbiBioSample);
-
-      // Data
-      Submission.Action.AddData.Data bioSampleData = submissionObjectFactory.createSubmissionActionAddDataData();
-      bioSampleData.setContentType("XML");
-      bioSampleData.setXmlContent(xmlContent);
-
-      // Identifier
-      TypeIdentifier actionIdentifier = ncbiCommonObjectFactory.createTypeIdentifier();
-      TypeSPUID bioSampleSpuid = ncbiCommonObjectFactory.createTypeSPUID();
-      bioSampleSpuid.setSpuidNamespace(CEDAR_NAMESPACE);
-      bioSampleSpuid.setValue(createNewActionId());
-      actionIdentifier.setSPUID(bioSampleSpuid);
-
-      // Action/AddData
-      Submission.Action.AddData bioSampleSubmissionActionAddData = submissionObjectFactory.createSubmissionActionAddData();
-      bioSampleSubmissionActionAddData.setTargetDb(TypeTargetDb.BIO_SAMPLE);
-      bioSampleSubmissionActionAddData.setData(bioSampleData);
-      bioSampleSubmissionActionAddData.setIdentifier(actionIdentifier);
-
-      // Action
-      Submission.Action bioSampleAction = submissionObjectFactory.createSubmissionAction();
-      bioSampleAction.setAddData(bioSampleSubmissionActionAddData);
-      ncbiSubmission.getAction().add(bioSampleAction);
-
-    }
+    NcbiParallelActionWriter.writeActions(biosamples.get(),
+        (bioSample, index) -> createBioSampleAction(bioSample, index, context), submissionWriter);
 
     /*** SRA ***/
     Optional<JsonNode> sras = NcbiPipelinesCommonUtil.getTemplateElementNode(instance, SRA_ELEMENT);
 
     // Retrieve the SRAs from the instance
-    for (JsonNode sra : sras.get()) {
-
-      Submission.Action.AddFiles sraAddFiles = submissionObjectFactory.createSubmissionActionAddFiles();
-      sraAddFiles.setTargetDb(TypeTargetDb.SRA);
+    NcbiParallelActionWriter.writeActions(sras.get(),
+        (sra, index) -> createSraAction(sra, index, context), submissionWriter);
 
-      // File type and file names
-      Optional<String> fileType = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_FILE_TYPE_FIELD);
+    // End the submission document
+    submissionWriter.close();
+  }
 
-      if (fileType.isPresent()) {
+  private Submission.Action createBioSampleAction(JsonNode bioSample, int index, NcbiConversionContext context)
+      throws DatatypeConfigurationException, ParseException {
 
-        if (sra.hasNonNull(SRA_FILE_NAME_FIELD) && sra.get(SRA_FILE_NAME_FIELD).size() > 0) {
+    // Start <BioSample> section
+    TypeBioSample ncbiBioSample = bioSampleObjectFactory.createTypeBioSample();
+    ncbiBioSample.setSchemaVersion(BIOSAMPLE_SCHEMA_VERSION);
 
-          Iterator<JsonNode> fileNameFieldsIt = sra.get(SRA_FILE_NAME_FIELD).iterator();
+    // Sample Name
+    Optional<String> sampleName = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_SAMPLE_NAME_FIELD);
+    if (sampleName.isPresent()) {
+      ncbiBioSample.setSampleId(createBioSampleIdentifier(sampleName.get()));
+    }
 
-          while (fileNameFieldsIt.hasNext()) {
+    // Submission descriptor
+    ncbiBioSample.setDescriptor(createDescriptor(BIOSAMPLE_SUBMISSION_DESCRIPTOR, BIOSAMPLE_SUBMISSION_DESCRIPTOR));
 
-            String fileNameField = fileNameFieldsIt.next().asText();
+    // Organism
+    ncbiBioSample.setOrganism(createOrganism(BIOSAMPLE_ORGANISM));
 
-            Optional<String> fileName = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, fileNameField);
+    // Package
+    ncbiBioSample.setPackage(BIOSAMPLE_PACKAGE);
 
-            if (fileName.isPresent()) {
+    // Attributes
+    ncbiBioSample.setAttributes(createBioSampleAttributes(bioSample, context.getSubmissionsReleaseDate()));
+
+    // XmlContent
+    // Development Note: The original NCBI submission doesn't include the BioSample element, so it
+    // is required to modify the submission.xsd file (See submission.xsd:441)
+    TypeInlineData.XmlContent xmlContent = submissionObjectFactory.createTypeInlineDataXmlContent();
+    xmlContent.setBioSample(ncbiBioSample);
+
+    // Data
+    Submission.Action.AddData.Data bioSampleData = submissionObjectFactory.createSubmissionActionAddDataData();
+    bioSampleData.setContentType("XML");
+    bioSampleData.setXmlContent(xmlContent);
+
+    // Identifier
+    TypeIdentifier actionIdentifier = ncbiCommonObjectFactory.createTypeIdentifier();
+    TypeSPUID bioSampleSpuid = ncbiCommonObjectFactory.createTypeSPUID();
+    bioSampleSpuid.setSpuidNamespace(CEDAR_NAMESPACE);
+    bioSampleSpuid.setValue(context.createNewActionId(index));
+    actionIdentifier.setSPUID(bioSampleSpuid);
+
+    // Action/AddData
+    Submission.Action.AddData bioSampleSubmissionActionAddData = submissionObjectFactory.createSubmissionActionAddData();
+    bioSampleSubmissionActionAddData.setTargetDb(TypeTargetDb.BIO_SAMPLE);
+    bioSampleSubmissionActionAddData.setData(bioSampleData);
+    bioSampleSubmissionActionAddData.setIdentifier(actionIdentifier);
+
+    // Action
+    Submission.Action bioSampleAction = submissionObjectFactory.createSubmissionAction();
+    bioSampleAction.setAddData(bioSampleSubmissionActionAddData);
+    return bioSampleAction;
+  }
 
-              Submission.Action.AddFiles.File sraFile = submissionObjectFactory.createSubmissionActionAddFilesFile();
-              sraFile.setFilePath(fileName.get());
-              sraFile.setDataType(fileType.get());
-              sraAddFiles.getFile().add(sraFile);
+  private Submission.Action createSraAction(JsonNode sra, int index, NcbiConversionContext context) throws
+      DatatypeConfigurationException, ParseException {
 
-            } else {
-              throw new IllegalArgumentException("File name field not present: " + fileNameField);
-            }
-          }
-        } else {
-          // In this case there is a file type but no file names, so we throw an exception
-          throw new IllegalArgumentException("Missing array of file names");
-        }
-      } else {
-        // do nothing
-      }
+    Optional<String> submissionsReleaseDate = context.getSubmissionsReleaseDate();
+    String bioprojectAccession = context.getBioprojectAccession();
 
-      // Reference to BioSample ID (Sample Name)
-      Optional<String> sraSampleName = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_SAMPLE_NAME_FIELD);
-      if (sraSampleName.isPresent()) {
-        TypeFileAttributeRefId bioSampleAttributeRefId = submissionObjectFactory.createTypeFileAttributeRefId();
-        bioSampleAttributeRefId.setName("BioSample");
-        TypeRefId refId = ncbiCommonObjectFactory.createTypeRefId();
-        TypeSPUID spuid = ncbiCommonObjectFactory.createTypeSPUID();
-        spuid.setSpuidNamespace(CEDAR_NAMESPACE);
-        spuid.setValue(sraSampleName.get());
-        refId.setSPUID(spuid);
-        bioSampleAttributeRefId.setRefId(refId);
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(bioSampleAttributeRefId);
-      }
+    Submission.Action.AddFiles sraAddFiles = submissionObjectFactory.createSubmissionActionAddFiles();
+    sraAddFiles.setTargetDb(TypeTargetDb.SRA);
 
-      // Reference to BioProject ID
-      if (!bioprojectAccession.isEmpty()) {
-        TypeFileAttributeRefId bioProjectAttributeRefId = submissionObjectFactory.createTypeFileAttributeRefId();
-        bioProjectAttributeRefId.setName("BioProject");
-        TypeRefId refId = ncbiCommonObjectFactory.createTypeRefId();
-        TypePrimaryId primaryId = ncbiCommonObjectFactory.createTypePrimaryId();
-        primaryId.setDb("BioProject");
-        primaryId.setValue(bioprojectAccession);
-        refId.setPrimaryId(primaryId);
-        bioProjectAttributeRefId.setRefId(refId);
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(bioProjectAttributeRefId);
-      }
+    // File type and file names
+    Optional<String> fileType = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_FILE_TYPE_FIELD);
 
-      // Library ID
-      Optional<String> libraryId = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_LIBRARY_ID_FIELD);
-      if (libraryId.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("library_ID");
-        fileAttribute.setValue(libraryId.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-      }
+    if (fileType.isPresent()) {
 
-      // Title
-      Optional<String> sraTitle = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_TITLE_FIELD);
-      if (sraTitle.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("title");
-        fileAttribute.setValue(sraTitle.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-      }
+      if (sra.hasNonNull(SRA_FILE_NAME_FIELD) && sra.get(SRA_FILE_NAME_FIELD).size() > 0) {
 
-      // Library Strategy
-      Optional<String> libraryStrategy = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_LIBRARY_STRATEGY_FIELD);
-      if (libraryStrategy.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("library_strategy");
-        fileAttribute.setValue(libraryStrategy.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-      }
+        Iterator<JsonNode> fileNameFieldsIt = sra.get(SRA_FILE_NAME_FIELD).iterator();
 
-      // Library Source
-      Optional<String> librarySource = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_LIBRARY_SOURCE_FIELD);
-      if (librarySource.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("library_source");
-        fileAttribute.setValue(librarySource.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-      }
+        while (fileNameFieldsIt.hasNext()) {
 
-      // Library Selection
-      Optional<String> librarySelection = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_LIBRARY_SELECTION_FIELD);
-      if (librarySelection.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("library_selection");
-        fileAttribute.setValue(librarySelection.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-      }
+          String fileNameField = fileNameFieldsIt.next().asText();
 
-      // Library Layout
-      Optional<String> libraryLayout = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_LIBRARY_LAYOUT_FIELD);
-      if (libraryLayout.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("library_layout");
-        fileAttribute.setValue(libraryLayout.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-      }
+          Optional<String> fileName = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, fileNameField);
 
-      // Platform
-      Optional<String> sequencingPlatform = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_PLATFORM_FIELD);
-      if (sequencingPlatform.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("platform");
-        fileAttribute.setValue(sequencingPlatform.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-      }
+          if (fileName.isPresent()) {
 
-      // Instrument Model
-      Optional<String> libraryInstrument = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_INSTRUMENT_MODEL_FIELD);
-      if (libraryInstrument.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("instrument_model");
-        fileAttribute.setValue(libraryInstrument.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
-      }
+            Submission.Action.AddFiles.File sraFile = submissionObjectFactory.createSubmissionActionAddFilesFile();
+            sraFile.setFilePath(fileName.get());
+            sraFile.setDataType(fileType.get());
+            sraAddFiles.getFile().add(sraFile);
 
-      // Design Description
-      Optional<String> designDescription = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_DESIGN_DESCRIPTION_FIELD);
-      if (designDescription.isPresent()) {
-        TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
-        fileAttribute.setName("design_description");
-        fileAttribute.setValue(designDescription.get());
-        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(fileAttribute);
+          } else {
+            throw new IllegalArgumentException("File name field not present: " + fileNameField);
+          }
+        }
+      } else {
+        // In this case there is a file type but no file names, so we throw an exception
+        throw new IllegalArgumentException("Missing array of file names");
       }
+    } else {
+      // do nothing
+    }
 
+    // Reference to BioSample ID (Sample Name)
+    Optional<String> sraSampleName = NcbiPipelinesCommonUtil.getTemplateFieldValue(sra, SRA_SAMPLE_NAME_FIELD);
+    if (sraSampleName.isPresent()) {
+      TypeFileAttributeRefId bioSampleAttributeRefId = submissionObjectFactory.createTypeFileAttributeRefId();
+      bioSampleAttributeRefId.setName("BioSample");
+      TypeRefId refId = ncbiCommonObjectFactory.createTypeRefId();
+      TypeSPUID spuid = ncbiCommonObjectFactory.createTypeSPUID();
+      spuid.setSpuidNamespace(CEDAR_NAMESPACE);
+      spuid.setValue(sraSampleName.get());
+      refId.setSPUID(spuid);
+      bioSampleAttributeRefId.setRefId(refId);
+      sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(bioSampleAttributeRefId);
+    }
 
-      // End of AIRR SRA Elements
+    // Reference to BioProject ID
+    if (!bioprojectAccession.isEmpty()) {
+      TypeFileAttributeRefId bioProjectAttributeRefId = submissionObjectFactory.createTypeFileAttributeRefId();
+      bioProjectAttributeRefId.setName("BioProject");
+      TypeRefId refId = ncbiCommonObjectFactory.createTypeRefId();
+      TypePrimaryId primaryId = ncbiCommonObjectFactory.createTypePrimaryId();
+      primaryId.setDb("BioProject");
+      primaryId.setValue(bioprojectAccession);
+      refId.setPrimaryId(primaryId);
+      bioProjectAttributeRefId.setRefId(refId);
+      sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(bioProjectAttributeRefId);
+    }
 
-      TypeSPUID sraSampleSpuid = ncbiCommonObjectFactory.createTypeSPUID();
-      sraSampleSpuid.setSpuidNamespace(CEDAR_NAMESPACE);
-      sraSampleSpuid.setValue(createNewSraId());
+    SRA_FILE_ATTRIBUTES.apply(sra, (attributeName, value) ->
+        sraAddFiles.getAttributeOrMetaOrAttributeRefId().add(createFileAttribute(attributeName, value)));
 
-      TypeIdentifier sraIdentifier = ncbiCommonObjectFactory.createTypeIdentifier();
-      sraIdentifier.setSPUID(sraSampleSpuid);
 
-      sraAddFiles.setIdentifier(sraIdentifier);
+    // End of AIRR SRA Elements
 
-      // Action
-      Submission.Action sraAction = submissionObjectFactory.createSubmissionAction();
-      sraAction.setAddFiles(sraAddFiles);
+    TypeSPUID sraSampleSpuid = ncbiCommonObjectFactory.createTypeSPUID();
+    sraSampleSpuid.setSpuidNamespace(CEDAR_NAMESPACE);
+    sraSampleSpuid.setValue(context.createNewSraId(index));
 
-      ncbiSubmission.getAction().add(sraAction);
+    TypeIdentifier sraIdentifier = ncbiCommonObjectFactory.createTypeIdentifier();
+    sraIdentifier.setSPUID(sraSampleSpuid);
 
-    }
+    sraAddFiles.setIdentifier(sraIdentifier);
 
-    // Generate XML from the submission instance
-    StringWriter writer = new StringWriter();
-    JAXBContext ctx = JAXBContext.newInstance(Submission.class);
-    Marshaller marshaller = ctx.createMarshaller();
-    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-    marshaller.marshal(ncbiSubmission, writer);
-
-    return writer.toString();
+    // Action
+    Submission.Action sraAction = submissionObjectFactory.createSubmissionAction();
+    sraAction.setAddFiles(sraAddFiles);
+    return sraAction;
   }
 
   private TypeOrganism createOrganism(String organismName) {
@@ -379,141 +384,14 @@ public class NcbiGenericTemplateInstance2XMLConverter {
     // Attributes
     TypeBioSample.Attributes bioSampleAttributes = bioSampleObjectFactory.createTypeBioSampleAttributes();
 
-    // Sample Title
-    Optional<String> sampleTitle = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_SAMPLE_TITLE_FIELD);
-    if (sampleTitle.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("sample_title", sampleTitle.get()));
-    }
-
-    // Organism
-    Optional<String> organism = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_ORGANISM_FIELD);
-    if (organism.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("organism", organism.get()));
-    }
-
-    // Isolate
-    Optional<String> isolate = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_ISOLATE_FIELD);
-    if (isolate.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("isolate", isolate.get()));
-    }
-
-    // Age
-    Optional<String> age = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_AGE_FIELD);
-    if (age.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("age", age.get()));
-    }
-
-    // Biomaterial Provider
-    Optional<String> biomaterialProvider = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_BIOMATERIAL_PROVIDER_FIELD);
-    if (biomaterialProvider.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("biomaterial_provider", biomaterialProvider.get()));
-    }
-
-    // Sex
-    Optional<String> sex = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_SEX_FIELD);
-    if (sex.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("sex", sex.get()));
-    }
-
-    // Tissue
-    Optional<String> tissue = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_TISSUE_FIELD);
-    if (tissue.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("tissue", tissue.get()));
-    }
-
-    // Cell line
-    Optional<String> cellLine = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_CELL_LINE_FIELD);
-    if (cellLine.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("cell_line", cellLine.get()));
-    }
+    BIOSAMPLE_ATTRIBUTES.apply(bioSample, (attributeName, value) ->
+        bioSampleAttributes.getAttribute().add(createAttribute(attributeName, value)));
 
-    // Cell type
-    Optional<String> cellType = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_CELL_TYPE_FIELD);
-    if (cellType.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("cell_type", cellType.get()));
-    }
-
-    // Cell subtype
-    Optional<String> cellSubtype = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_CELL_SUBTYPE_FIELD);
-    if (cellSubtype.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("cell_subtype", cellSubtype.get()));
-    }
-
-    // Culture collection
-    Optional<String> cultureCollection = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_CULTURE_COLLECTION_FIELD);
-    if (cultureCollection.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("culture_collection", cultureCollection.get()));
-    }
-
-    // Development stage
-    Optional<String> developmentStage = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_DEVELOPMENT_STAGE_FIELD);
-    if (developmentStage.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("development_stage", developmentStage.get()));
-    }
-
-    // Disease
-    Optional<String> disease = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_DISEASE_FIELD);
-    if (disease.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("disease", disease.get()));
-    }
-
-    // Disease stage
-    Optional<String> diseaseStage = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_DISEASE_STAGE_FIELD);
-    if (diseaseStage.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("disease_stage", diseaseStage.get()));
-    }
-
-    // Ethnicity
-    Optional<String> ethnicity = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_ETHNICITY_FIELD);
-    if (ethnicity.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("ethnicity", ethnicity.get()));
-    }
-
-    // Health state
-    Optional<String> healthState = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_HEALTH_STATE_FIELD);
-    if (healthState.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("health_state", healthState.get()));
-    }
-
-    // Karyotype
-    Optional<String> karyotype = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_KARYOTYPE_FIELD);
-    if (karyotype.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("karyotype", karyotype.get()));
-    }
-
-    // Phenotype
-    Optional<String> phenotype = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_PHENOTYPE_FIELD);
-    if (phenotype.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("phenotype", phenotype.get()));
-    }
-
-    // Population
-    Optional<String> population = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_POPULATION_FIELD);
-    if (population.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("population", population.get()));
-    }
-
-    // Race
-    Optional<String> race = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_RACE_FIELD);
-    if (race.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("race", race.get()));
-    }
-
-    // Sample type
-    Optional<String> sampleType = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_SAMPLE_TYPE_FIELD);
-    if (sampleType.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("sample_type", sampleType.get()));
-    }
-
-    // Treatment
-    Optional<String> treatment = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_TREATMENT_FIELD);
-    if (treatment.isPresent()) {
-      bioSampleAttributes.getAttribute().add(createAttribute("treatment", treatment.get()));
-    }
-
-    // Sample Description
-    Optional<String> sampleDescription = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_DESCRIPTION_FIELD);
+    // Sample Description. Not in the table: the attribute is written with the treatment value
+    Optional<String> sampleDescription =
+        NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_DESCRIPTION_FIELD);
     if (sampleDescription.isPresent()) {
+      Optional<String> treatment = NcbiPipelinesCommonUtil.getTemplateFieldValue(bioSample, BIOSAMPLE_TREATMENT_FIELD);
       bioSampleAttributes.getAttribute().add(createAttribute("sample_description", treatment.get()));
     }
 
@@ -542,18 +420,6 @@ public class NcbiGenericTemplateInstance2XMLConverter {
     return target.format(d);
   }
 
-  private String createNewSraId() {
-    String id = "SRA-" + UUID.randomUUID();
-    sraIds.add(id);
-    return id;
-  }
-
-  private String createNewActionId() {
-    String id = "Action-" + UUID.randomUUID();
-    sraIds.add(id);
-    return id;
-  }
-
   private TypeAttribute createAttribute(String attributeName, String attributeValue) {
     TypeAttribute attribute = bioSampleObjectFactory.createTypeAttribute();
     attribute.setAttributeName(attributeName);
@@ -562,4 +428,11 @@ public class NcbiGenericTemplateInstance2XMLConverter {
     return attribute;
   }
 
+  private TypeFileAttribute createFileAttribute(String attributeName, String attributeValue) {
+    TypeFileAttribute fileAttribute = submissionObjectFactory.createTypeFileAttribute();
+    fileAttribute.setName(attributeName);
+    fileAttribute.setValue(attributeValue);
+    return fileAttribute;
+  }
+
 }
@@ -0,0 +1,37 @@
+package org.metadatacenter.submission.ncbi.queue;
+
+import org.metadatacenter.submission.ncbi.NcbiSubmission;
+
+/**
+ * Registry entry for a submission owned by a node. It contains what a peer needs to resume the submission if the
+ * owner dies: the submission itself and whether its files already reached the NCBI.
+ */
+public class NcbiInFlightSubmission {
+
+  private NcbiSubmission submission;
+  private boolean uploaded;
+
+  public NcbiInFlightSubmission() {
+  }
+
+  public NcbiInFlightSubmission(NcbiSubmission submission, boolean uploaded) {
+    this.submission = submission;
+    this.uploaded = uploaded;
+  }
+
+  public NcbiSubmission getSubmission() {
+    return submission;
+  }
+
+  public void setSubmission(NcbiSubmission submission) {
+    this.submission = submission;
+  }
+
+  public boolean isUploaded() {
+    return uploaded;
+  }
+
+  public void setUploaded(boolean uploaded) {
+    this.uploaded = uploaded;
+  }
+}
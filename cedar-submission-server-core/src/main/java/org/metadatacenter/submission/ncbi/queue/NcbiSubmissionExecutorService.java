@@ -1,60 +1,122 @@
 package org.metadatacenter.submission.ncbi.queue;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.metadatacenter.config.CedarConfig;
+import org.metadatacenter.submission.lease.SubmissionLeaseManager;
+import org.metadatacenter.submission.lease.SubmissionTakeoverHandler;
 import org.metadatacenter.submission.ncbi.NcbiConstants;
 import org.metadatacenter.submission.ncbi.NcbiSubmission;
 import org.metadatacenter.submission.ncbi.status.NcbiSubmissionStatusTask;
 import org.metadatacenter.submission.ncbi.upload.NcbiFtpUploadService;
 import org.metadatacenter.submission.status.SubmissionStatusManager;
 import org.metadatacenter.submission.status.SubmissionType;
+import org.metadatacenter.util.json.JsonMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class NcbiSubmissionExecutorService {
+public class NcbiSubmissionExecutorService implements SubmissionTakeoverHandler {
 
   private static final Logger logger = LoggerFactory.getLogger(NcbiSubmissionExecutorService.class);
   private final CedarConfig cedarConfig;
+  private final SubmissionLeaseManager leaseManager;
+  private final NcbiSubmissionQueueService ncbiSubmissionQueueService;
+  private volatile boolean draining;
 
-  public NcbiSubmissionExecutorService(CedarConfig cedarConfig) {
+  public NcbiSubmissionExecutorService(CedarConfig cedarConfig, SubmissionLeaseManager leaseManager,
+                                       NcbiSubmissionQueueService ncbiSubmissionQueueService) {
     this.cedarConfig = cedarConfig;
+    this.leaseManager = leaseManager;
+    this.ncbiSubmissionQueueService = ncbiSubmissionQueueService;
   }
 
   // Main entry point
   public void handleEvent(NcbiSubmissionQueueEvent event) {
-    submit(event.getSubmission());
+    NcbiSubmission submission = event.getSubmission();
+    if (submission == null) { // e.g., a wake-up message pushed on shutdown by an older node
+      return;
+    }
+    // Only the node that holds the lease on a submission may process it
+    if (!leaseManager.acquire(submission.getId())) {
+      logger.info("Submission " + submission.getId() + " is owned by another node. Skipping it.");
+      return;
+    }
+    register(submission, false);
+    submit(submission);
+  }
+
+  /**
+   * Stop uploading. Uploads in progress stop after the file being transferred and keep their progress in the in-flight
+   * registry, so that the node that takes over the submission only uploads the remaining files.
+   */
+  public void drain() {
+    draining = true;
+  }
+
+  /**
+   * Resume a submission whose previous owner died. If its files did not reach the NCBI, the submission goes back to
+   * the queue so that it is uploaded again. Otherwise, we only need to keep tracking its status.
+   */
+  @Override
+  public void takeOver(String submissionID, String payload) {
+    NcbiInFlightSubmission inFlightSubmission;
+    try {
+      inFlightSubmission = JsonMapper.MAPPER.readValue(payload, NcbiInFlightSubmission.class);
+    } catch (IOException e) {
+      logger.error("Unable to read the registry entry of submission " + submissionID, e);
+      leaseManager.release(submissionID);
+      return;
+    }
+    if (inFlightSubmission.isUploaded()) {
+      logger.info("Resuming status tracking of submission " + submissionID);
+      SubmissionStatusManager.getInstance().setCedarConfig(cedarConfig);
+      SubmissionStatusManager.getInstance().resumeSubmission(createStatusTask(inFlightSubmission.getSubmission()));
+    } else {
+      logger.info("Re-enqueuing submission " + submissionID + " that did not finish uploading");
+      leaseManager.release(submissionID);
+      ncbiSubmissionQueueService.requeueSubmission(inFlightSubmission.getSubmission());
+    }
   }
 
   private void submit(NcbiSubmission submission) {
     try {
-      // Read files
+      // Read files, skipping those uploaded before the submission was handed over to this node
       List<File> filesToSubmit = new ArrayList<>();
       for (String filePath : submission.getLocalFilePaths()) {
-        filesToSubmit.add(new File(filePath));
+        if (!submission.getUploadedFilePaths().contains(filePath)) {
+          filesToSubmit.add(new File(filePath));
+        }
       }
 
       logger.info("Uploading to NCBI...");
 
       // Track the submission status
-      NcbiSubmissionStatusTask submissionStatusTask = new NcbiSubmissionStatusTask(submission.getId(),
-          SubmissionType.NCBI, submission.getCedarUserId(), null, cedarConfig.getSubmissionConfig().getNcbi()
-          .getSra().getFtp(),
-          submission.getSubmissionFolder());
+      NcbiSubmissionStatusTask submissionStatusTask = createStatusTask(submission);
       SubmissionStatusManager.getInstance().setCedarConfig(cedarConfig);
       SubmissionStatusManager.getInstance().addSubmission(submissionStatusTask);
 
       logger.info("Added submission status task to submission status manager");
 
       if (NcbiConstants.NCBI_SUBMIT) { // real submission
-        NcbiFtpUploadService.uploadToNcbi(submission.getSubmissionFolder(),
+        boolean completed = NcbiFtpUploadService.uploadToNcbi(submission.getSubmissionFolder(),
             filesToSubmit, cedarConfig.getSubmissionConfig().getNcbi().getSra().getFtp(), submission
-                .getUploadSubmitReadyFile());
+                .getUploadSubmitReadyFile(), file -> {
+              submission.getUploadedFilePaths().add(file.getPath());
+              register(submission, false);
+            }, () -> draining);
+        if (!completed) { // stopped by drain()
+          logger.info("Upload of submission " + submission.getId() + " stopped on shutdown. It will be resumed by " +
+              "the node that takes it over.");
+          return;
+        }
       } else { // simulated submission
         Thread.sleep(NcbiConstants.NCBI_SIMULATION_MODE_TIMEOUT);
       }
+      register(submission, true);
 
       logger.info("Submission to the NCBI completed! Submission id: " + submission.getId() + "; No. files: " +
           submission.getLocalFilePaths().size());
@@ -63,8 +125,24 @@ public class NcbiSubmissionExecutorService {
       //FileUtils.deleteDirectory(new File(submission.getSubmissionFolder()));
 
     } catch (Exception e) {
-      logger.error("Error submitting the data to the NCBI.");
+      // The registry entry still says that the files did not reach the NCBI, so a node that takes the submission over
+      // uploads them again
+      logger.error("Error submitting the data to the NCBI. Submission id: " + submission.getId());
       logger.error(e.getMessage());
     }
   }
+
+  private NcbiSubmissionStatusTask createStatusTask(NcbiSubmission submission) {
+    return new NcbiSubmissionStatusTask(submission.getId(), SubmissionType.NCBI, submission.getCedarUserId(), null,
+        cedarConfig.getSubmissionConfig().getNcbi().getSra().getFtp(), submission.getSubmissionFolder());
+  }
+
+  private void register(NcbiSubmission submission, boolean uploaded) {
+    try {
+      leaseManager.register(submission.getId(),
+          JsonMapper.MAPPER.writeValueAsString(new NcbiInFlightSubmission(submission, uploaded)));
+    } catch (JsonProcessingException e) {
+      logger.error("Error while registering in-flight submission " + submission.getId(), e);
+    }
+  }
 }
@@ -1,6 +1,8 @@
 package org.metadatacenter.submission.ncbi.queue;
 
 import io.dropwizard.lifecycle.Managed;
+import org.metadatacenter.submission.concurrent.IoTaskExecutor;
+import org.metadatacenter.submission.ncbi.NcbiConstants;
 import org.metadatacenter.submission.ncbi.NcbiSubmission;
 import org.metadatacenter.util.json.JsonMapper;
 import org.slf4j.Logger;
@@ -8,8 +10,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class NcbiSubmissionQueueProcessor implements Managed {
 
@@ -17,33 +18,40 @@ public class NcbiSubmissionQueueProcessor implements Managed {
 
   private final NcbiSubmissionQueueService ncbiSubmissionQueueService;
   private final NcbiSubmissionExecutorService ncbiSubmissionExecutorService;
-  private boolean doProcessing;
+  // Runs the consumer loop: the Redis pops and the FTP uploads of the submissions it takes
+  private final IoTaskExecutor executor;
+  private volatile boolean doProcessing;
 
   public NcbiSubmissionQueueProcessor(NcbiSubmissionQueueService ncbiSubmissionQueueService,
                                       NcbiSubmissionExecutorService ncbiSubmissionExecutorService) {
     this.ncbiSubmissionQueueService = ncbiSubmissionQueueService;
     this.ncbiSubmissionExecutorService = ncbiSubmissionExecutorService;
+    this.executor = IoTaskExecutor.create("ncbi-submission-queue", 1, 1);
     doProcessing = true;
   }
 
   private void digestMessages() {
     log.info("NcbiSubmissionQueueProcessor.start()");
-    ncbiSubmissionQueueService.initializeBlockingQueue();
     List<String> submissionMessages;
+    log.info("Waiting for submissions in the NCBI submission queue.");
     while (doProcessing) {
-      log.info("Waiting for a submission in the NCBI submission queue.");
-      submissionMessages = ncbiSubmissionQueueService.waitForMessages();
+      submissionMessages = ncbiSubmissionQueueService.waitForMessages(NcbiConstants.NCBI_SUBMISSION_QUEUE_POLL_TIMEOUT);
+      if (submissionMessages == null) { // timed out, check whether we are stopping
+        continue;
+      }
+      log.info("Got submission message.");
       NcbiSubmissionQueueEvent event = null;
-      if (submissionMessages != null && !submissionMessages.isEmpty()) {
-        log.info("Got submission message.");
-        String value = submissionMessages.get(1);
-        try {
-          event = new NcbiSubmissionQueueEvent(JsonMapper.MAPPER.readValue(value, NcbiSubmission.class));
-        } catch (IOException e) {
-          log.error("There was an error while deserializing submission", e);
-        }
+      String value = submissionMessages.get(1);
+      try {
+        event = new NcbiSubmissionQueueEvent(JsonMapper.MAPPER.readValue(value, NcbiSubmission.class));
+      } catch (IOException e) {
+        log.error("There was an error while deserializing submission", e);
       }
-      if (event != null) {
+      if (!doProcessing && event != null && event.getSubmission() != null) {
+        // Popped while shutting down. Put it back for another node
+        log.info("Returning submission " + event.getSubmission().getId() + " to the queue");
+        ncbiSubmissionQueueService.requeueSubmission(event.getSubmission());
+      } else if (event != null) {
         try {
           if (event.getSubmission()!=null) {
             log.info(" no. files: " + event.getSubmission().getLocalFilePaths().size());
@@ -62,17 +70,27 @@ public class NcbiSubmissionQueueProcessor implements Managed {
 
   @Override
   public void start() throws Exception {
-    ExecutorService executor = Executors.newSingleThreadExecutor();
     executor.submit(this::digestMessages);
   }
 
+  /**
+   * Drain the processor: stop taking submissions from the queue and let the submission being uploaded finish its
+   * current file, for up to NCBI_SUBMISSION_DRAIN_TIMEOUT ms. Unfinished uploads stay in the in-flight registry with
+   * their progress, and are taken over by another node once this node hands off its leases.
+   */
   @Override
   public void stop() throws Exception {
     log.info("NcbiSubmissionQueueProcessor.stop()");
     log.info("Set looping flag to false");
     doProcessing = false;
+    ncbiSubmissionExecutorService.drain();
+    // The consumer stops at the end of its current wait, at most NCBI_SUBMISSION_QUEUE_POLL_TIMEOUT s from now
+    executor.shutdown();
+    if (!executor.awaitTermination(NcbiConstants.NCBI_SUBMISSION_DRAIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+      log.warn("Submission upload did not stop in time. It will be resumed from its last completed file");
+      executor.shutdownNow();
+    }
     log.info("Close Jedis");
-    ncbiSubmissionQueueService.enqueueSubmission(null);
     ncbiSubmissionQueueService.close();
   }
 }
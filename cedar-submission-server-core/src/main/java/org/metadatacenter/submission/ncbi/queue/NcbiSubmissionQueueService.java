@@ -3,29 +3,132 @@ package org.metadatacenter.submission.ncbi.queue;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.metadatacenter.config.CacheServerPersistent;
 import org.metadatacenter.server.queue.util.QueueServiceWithBlockingQueue;
+import org.metadatacenter.submission.ncbi.NcbiConstants;
 import org.metadatacenter.submission.ncbi.NcbiSubmission;
+import org.metadatacenter.submission.redis.SubmissionRedisClient;
 import org.metadatacenter.util.json.JsonMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 public class NcbiSubmissionQueueService extends QueueServiceWithBlockingQueue {
 
   private static final Logger log = LoggerFactory.getLogger(NcbiSubmissionQueueService.class);
 
-  public NcbiSubmissionQueueService(CacheServerPersistent cacheConfig) {
+  // Set the de-duplication marker and push the submission in a single atomic round trip
+  private static final String ENQUEUE_ONCE_SCRIPT =
+      "if redis.call('set', KEYS[1], '1', 'NX', 'PX', ARGV[2]) then redis.call('rpush', KEYS[2], ARGV[1]) return 1 " +
+          "end return 0";
+
+  private final SubmissionRedisClient redisClient;
+
+  /**
+   * All the commands, including the blocking pop, go through the shared Redis client.
+   */
+  public NcbiSubmissionQueueService(CacheServerPersistent cacheConfig, SubmissionRedisClient redisClient) {
     super(cacheConfig, NCBI_SUBMISSION_QUEUE_ID);
+    this.redisClient = redisClient;
+  }
+
+  /**
+   * Enqueue a submission unless the same submission (same id and same files) has already been enqueued recently.
+   * Retries of the last upload chunk, or several nodes seeing the upload complete, would otherwise send the same
+   * files to the NCBI more than once.
+   *
+   * @return true if the submission was enqueued, false if it was a duplicate
+   */
+  public boolean enqueueSubmission(NcbiSubmission submission) {
+    String json = toJson(submission);
+    Object reply = redisClient.execute(jedis -> jedis.eval(ENQUEUE_ONCE_SCRIPT,
+        Arrays.asList(getMarkerKey(submission), queueName),
+        Arrays.asList(json, String.valueOf(NcbiConstants.NCBI_SUBMISSION_ENQUEUE_MARKER_TTL))));
+    if (Long.valueOf(1).equals(reply)) {
+      return true;
+    } else {
+      log.info("Submission " + submission.getId() + " has already been enqueued. Ignoring duplicate.");
+      return false;
+    }
   }
 
-  public void enqueueSubmission(NcbiSubmission submission) {
-    try (Jedis jedis = pool.getResource()) {
-      String json = null;
-      try {
-        json = JsonMapper.MAPPER.writeValueAsString(submission);
-      } catch (JsonProcessingException e) {
-        log.error("Error while enqueueing submission", e);
+  /**
+   * Wait for a submission, for up to the given time. The queue is shared by all the nodes, so the consumer is not
+   * woken up through it on shutdown: it checks whether to stop each time the wait times out.
+   *
+   * @return the queue name and the submission, or null if no submission arrived in time
+   */
+  public List<String> waitForMessages(int timeout) {
+    List<String> messages = redisClient.execute(jedis -> jedis.blpop(timeout, queueName));
+    return messages == null || messages.isEmpty() ? null : messages;
+  }
+
+  /**
+   * Put back on the queue a submission that was already enqueued once (e.g., taken over from a dead node). It
+   * bypasses the de-duplication marker.
+   */
+  public void requeueSubmission(NcbiSubmission submission) {
+    requeueSubmissions(Collections.singletonList(submission));
+  }
+
+  /**
+   * Put back several submissions on the queue with a single command.
+   */
+  public void requeueSubmissions(Collection<NcbiSubmission> submissions) {
+    if (submissions.isEmpty()) {
+      return;
+    }
+    String[] jsons = submissions.stream().map(this::toJson).toArray(String[]::new);
+    redisClient.execute(jedis -> jedis.rpush(queueName, jsons));
+  }
+
+  private String toJson(NcbiSubmission submission) {
+    String json = null;
+    try {
+      json = JsonMapper.MAPPER.writeValueAsString(submission);
+    } catch (JsonProcessingException e) {
+      log.error("Error while enqueueing submission", e);
+    }
+    return json;
+  }
+
+  private String getMarkerKey(NcbiSubmission submission) {
+    return queueName + ":enqueued:" + submission.getId() + ":" + getFingerprint(submission);
+  }
+
+  /**
+   * Fingerprint of the submission content, based on the names and sizes of its files. The NCBI destination folder is
+   * left out because it is regenerated (date-based) every time the upload completes. File contents are not hashed
+   * since they can be tens of GB.
+   */
+  private static String getFingerprint(NcbiSubmission submission) {
+    List<String> entries = new ArrayList<>();
+    if (submission.getLocalFilePaths() != null) {
+      for (String filePath : submission.getLocalFilePaths()) {
+        File file = new File(filePath);
+        entries.add(file.getName() + ":" + file.length());
       }
-      jedis.rpush(queueName, json);
     }
+    Collections.sort(entries);
+    entries.add(String.valueOf(submission.getUploadSubmitReadyFile()));
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(String.join("|", entries).getBytes(StandardCharsets.UTF_8));
+      return new BigInteger(1, hash).toString(16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // SHA-256 is available on every JVM
+    }
+  }
+
+  public String getQueueName() {
+    return queueName;
   }
 }
@@ -0,0 +1,149 @@
+package org.metadatacenter.submission.ncbi.status;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.metadatacenter.config.FTPConfig;
+import org.metadatacenter.submission.ncbi.NcbiConstants;
+import org.metadatacenter.submission.status.SubmissionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the NCBI status checks that become due at about the same time and runs them over a single FTP session,
+ * instead of opening one session (connect, login, logout) per submission. The number of connections to the NCBI
+ * server then depends on the number of poll cycles, not on the number of submissions being tracked.
+ */
+public class NcbiFtpStatusBatcher {
+
+  final static Logger logger = LoggerFactory.getLogger(NcbiFtpStatusBatcher.class);
+
+  private static NcbiFtpStatusBatcher singleInstance;
+
+  private final BlockingQueue<StatusRequest> requests = new LinkedBlockingQueue<>();
+
+  private NcbiFtpStatusBatcher() {
+    Thread dispatcher = new Thread(this::dispatch, "ncbi-status-batcher");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+  public static synchronized NcbiFtpStatusBatcher getInstance() {
+    if (singleInstance == null) {
+      singleInstance = new NcbiFtpStatusBatcher();
+    }
+    return singleInstance;
+  }
+
+  /**
+   * Check the status of a submission as part of the next batch.
+   *
+   * @return completes once the batch has been processed
+   */
+  public CompletableFuture<SubmissionStatus> submit(NcbiSubmissionStatusTask statusTask) {
+    StatusRequest request = new StatusRequest(statusTask);
+    requests.add(request);
+    return request.result;
+  }
+
+  /**
+   * Check the status of a submission as part of the next batch. Blocks until the batch has been processed.
+   */
+  public SubmissionStatus getNcbiSubmissionStatus(NcbiSubmissionStatusTask statusTask) throws Exception {
+    try {
+      return submit(statusTask).get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  private void dispatch() {
+    while (true) {
+      try {
+        List<StatusRequest> batch = new ArrayList<>();
+        batch.add(requests.take());
+        // Give the checks that are due at about the same time a chance to join the batch
+        long deadline = System.currentTimeMillis() + NcbiConstants.NCBI_STATUS_BATCH_WINDOW;
+        while (batch.size() < NcbiConstants.NCBI_STATUS_BATCH_MAX_SIZE) {
+          StatusRequest request = requests.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+          if (request == null) {
+            break;
+          }
+          batch.add(request);
+        }
+        // Submissions are normally all on the same server, but the FTP configuration comes with each task
+        Map<String, List<StatusRequest>> batchesByServer = new LinkedHashMap<>();
+        for (StatusRequest request : batch) {
+          FTPConfig ftpConfig = request.statusTask.getFtpConfig();
+          String server = ftpConfig.getHost() + "|" + ftpConfig.getUser();
+          batchesByServer.computeIfAbsent(server, k -> new ArrayList<>()).add(request);
+        }
+        for (List<StatusRequest> serverBatch : batchesByServer.values()) {
+          processBatch(serverBatch);
+        }
+      } catch (InterruptedException e) {
+        logger.info("NCBI status batcher interrupted");
+        return;
+      } catch (Exception e) {
+        logger.error("Error in NCBI status batcher: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  private void processBatch(List<StatusRequest> batch) throws InterruptedException {
+    logger.info("Checking the status of " + batch.size() + " NCBI submission(s) over a single FTP session");
+    FTPClient ftpClient = null;
+    try {
+      ftpClient = NcbiFtpStatusChecker.connect(batch.get(0).statusTask.getFtpConfig());
+      String homeDirectory = ftpClient.printWorkingDirectory();
+      for (StatusRequest request : batch) {
+        if (request.result.isDone()) { // cancelled (e.g., past its deadline) while waiting for its turn
+          continue;
+        }
+        try {
+          request.result.complete(NcbiFtpStatusChecker.getNcbiSubmissionStatus(ftpClient, homeDirectory,
+              request.statusTask));
+        } catch (InterruptedException e) {
+          throw e;
+        } catch (Exception e) {
+          request.result.completeExceptionally(e);
+          // The session may be lost, or out of step with the server (e.g., a reply left unread). Start a new one for
+          // the rest of the batch
+          NcbiFtpStatusChecker.disconnect(ftpClient);
+          ftpClient = NcbiFtpStatusChecker.connect(request.statusTask.getFtpConfig());
+          homeDirectory = ftpClient.printWorkingDirectory();
+        }
+      }
+      ftpClient.logout();
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Exception e) {
+      logger.error("Error while checking the status of NCBI submissions: " + e.getMessage());
+      for (StatusRequest request : batch) {
+        request.result.completeExceptionally(e); // no-op for the requests already completed
+      }
+    } finally {
+      NcbiFtpStatusChecker.disconnect(ftpClient);
+      for (StatusRequest request : batch) {
+        request.result.cancel(true); // no-op for the requests already completed
+      }
+    }
+  }
+
+  private static class StatusRequest {
+    private final NcbiSubmissionStatusTask statusTask;
+    private final CompletableFuture<SubmissionStatus> result = new CompletableFuture<>();
+
+    private StatusRequest(NcbiSubmissionStatusTask statusTask) {
+      this.statusTask = statusTask;
+    }
+  }
+}
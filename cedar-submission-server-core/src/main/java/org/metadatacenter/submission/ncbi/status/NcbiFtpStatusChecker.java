@@ -1,8 +1,8 @@
 package org.metadatacenter.submission.ncbi.status;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
-import org.apache.commons.net.ftp.FTPFile;
 import org.apache.commons.net.ftp.FTPReply;
 import org.metadatacenter.config.FTPConfig;
 import org.metadatacenter.submission.ncbi.NcbiConstants;
@@ -12,150 +12,190 @@ import org.metadatacenter.submission.status.*;
 import org.metadatacenter.submission.upload.ftp.UploaderCreationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class NcbiFtpStatusChecker {
 
   final static Logger logger = LoggerFactory.getLogger(NcbiFtpStatusChecker.class);
 
-  public static SubmissionStatus getNcbiSubmissionStatus(String submissionID, FTPConfig ftpConfig,
-                                                         String submissionFolder, String lastStatusReportFile)
-      throws SAXException, ParserConfigurationException, TransformerException, UploaderCreationException,
-      IOException, InterruptedException {
+  private static final Pattern REPORT_FILE_NAME_PATTERN = Pattern.compile(NcbiConstants.NCBI_REPORT_REGEX);
+
+  public static SubmissionStatus getNcbiSubmissionStatus(NcbiSubmissionStatusTask statusTask)
+      throws XMLStreamException, TransformerException, UploaderCreationException, IOException,
+      InterruptedException {
 
     FTPClient ftpClient = null;
     SubmissionStatus submissionStatus = null;
     try {
+      // Open the FTP connection
+      ftpClient = connect(statusTask.getFtpConfig());
+      submissionStatus = getNcbiSubmissionStatus(ftpClient, ftpClient.printWorkingDirectory(), statusTask);
+      ftpClient.logout();
+    } finally {
+      disconnect(ftpClient);
+    }
+    return submissionStatus;
+  }
 
-      String submissionPath = ftpConfig.getSubmissionDirectory() + "/" + submissionFolder;
+  /**
+   * Check the status of a submission using an FTP session that is already open, so that a single session can be
+   * used to check several submissions. Only the file names of the submission folder are listed. The most recent
+   * report is downloaded and parsed only when its number is higher than the one of the last report parsed for the
+   * submission; otherwise the status is rebuilt from the cached report.
+   *
+   * @param homeDirectory Working directory of the session after login. Folder paths are resolved from it
+   */
+  public static SubmissionStatus getNcbiSubmissionStatus(FTPClient ftpClient, String homeDirectory,
+                                                         NcbiSubmissionStatusTask statusTask)
+      throws XMLStreamException, TransformerException, IOException, InterruptedException {
 
-      logger.info("Checking NCBI submission status (submissionPath: " + submissionPath + ")");
+    String submissionID = statusTask.getSubmissionID();
+    SubmissionStatus submissionStatus = null;
+    try {
 
-      // Open the FTP connection
-      ftpClient = connect(ftpConfig.getHost(), ftpConfig.getUser(),
-          ftpConfig.getPassword());
+      String submissionPath = statusTask.getFtpConfig().getSubmissionDirectory() + "/" +
+          statusTask.getSubmissionFolder();
+
+      logger.info("Checking NCBI submission status (submissionPath: " + submissionPath + ")");
 
       // TODO: remove this block. It is used for testing
       if (!NcbiConstants.NCBI_SUBMIT || !NcbiConstants.NCBI_UPLOAD_SUBMIT_READY_FILE) {
         submissionPath = NcbiConstants.NCBI_TEST_SUBMISSION_PATH;
       }
 
-      // Go to the submission folder
-      int count = 0;
-      while (count <= 3) {
-        if (!ftpClient.changeWorkingDirectory(submissionPath)) {
-          if (count < 3) {
-            count++;
-            logger.warn("Couldn't go to the submission folder (path: " + submissionPath + "). Retrying...");
-            Thread.sleep(3000);
-          } else {
-            SubmissionStatusManager.getInstance().removeSubmission(submissionID);
-            throw new IOException("Couldn't go to the submission folder (path: " + submissionPath + ")");
-          }
+      // Go to the submission folder. It may not be visible yet right after the upload. We do not wait for it here, as
+      // the session is shared with the other checks of the batch: the submission is checked again in the next round
+      if (!ftpClient.changeWorkingDirectory(homeDirectory) || !ftpClient.changeWorkingDirectory(submissionPath)) {
+        int missingFolderChecks = statusTask.incrementMissingFolderChecks();
+        if (missingFolderChecks < NcbiConstants.NCBI_STATUS_MISSING_FOLDER_MAX_CHECKS) {
+          logger.warn("Couldn't go to the submission folder (path: " + submissionPath + "). Will retry in the next " +
+              "check");
+          return getCurrentStatus(statusTask);
         } else {
-          break;
+          SubmissionStatusManager.getInstance().removeSubmission(submissionID);
+          throw new IOException("Couldn't go to the submission folder (path: " + submissionPath + ")");
         }
       }
-
-      FTPFile[] files = ftpClient.listFiles();
-      Optional<String> mostRecentReportFileName = getMostRecentReportFileName(files);
-      if (mostRecentReportFileName.isPresent()) { // the folder contains a report file (at the minimum)
-        if (!mostRecentReportFileName.get().equals(lastStatusReportFile)) { // there is a new report
-          // update the variable that stores the name of the last report checked
-          SubmissionStatusDescriptor submissionStatusDescriptor = SubmissionStatusManager.getInstance()
-              .getCurrentSubmissions().get(submissionID);
-          NcbiSubmissionStatusTask statusTask = (NcbiSubmissionStatusTask) submissionStatusDescriptor
-              .getSubmissionStatusTask();
-          statusTask.setLastStatusReportFile(mostRecentReportFileName.get());
-
-          // generate submission status from the most recent report file
-          InputStream inputStream = ftpClient.retrieveFileStream(mostRecentReportFileName.get());
-          NcbiSubmissionStatusReport statusFromReport = getSubmissionStatusFromReport(inputStream);
-          submissionStatus = NcbiSubmissionStatusUtil.toSubmissionStatus(submissionID, statusFromReport);
-          logger.info("The submission status has been updated (submissionId = " + submissionID + ")");
-          logger.info(submissionStatus.toString());
-        } else { // the report file has already been checked so the status will be the same
-          submissionStatus =
-              SubmissionStatusManager.getInstance().getCurrentSubmissions().get(submissionID).getSubmissionStatus();
-        }
-      } else { // the folder does not contain any report file yet
-        String message = SubmissionStatusUtil.getShortStatusMessage(submissionID, SubmissionState.PROCESSING)
-            + "\n" + "The submission is being processed";
-        submissionStatus = new SubmissionStatus(submissionID, SubmissionState.PROCESSING, message);
+      statusTask.resetMissingFolderChecks();
+
+      int mostRecentReportNumber = getMostRecentReportNumber(ftpClient.listNames());
+      if (mostRecentReportNumber > statusTask.getLastReportNumber()) { // there is a new report
+        String reportFileName = getReportFileName(mostRecentReportNumber);
+        // generate submission status from the most recent report file
+        byte[] statusReport = retrieveFile(ftpClient, reportFileName);
+        NcbiSubmissionStatusReport statusFromReport = getSubmissionStatusFromReport(statusReport);
+        statusTask.setLastReport(mostRecentReportNumber, statusFromReport);
+        submissionStatus = NcbiSubmissionStatusUtil.toSubmissionStatus(submissionID, statusFromReport);
+        logger.info("The submission status has been updated (submissionId = " + submissionID + ")");
+        logger.info(submissionStatus.toString());
+      } else {
+        submissionStatus = getCurrentStatus(statusTask);
       }
-      ftpClient.logout();
-    } catch (IOException | ParserConfigurationException | TransformerException | SAXException |
-        UploaderCreationException e) {
+    } catch (IOException | XMLStreamException | TransformerException e) {
       logger.info("Exception checking submission status (submissionId = " + submissionID + "): " + e.getMessage());
       throw e;
-    } finally {
-      // Close the FTP connection
-      if (ftpClient.isConnected()) {
-        try {
-          ftpClient.disconnect();
-        } catch (IOException e) {
-          // do nothing
-        }
-      }
     }
     return submissionStatus;
   }
 
-  private static Optional<String> getMostRecentReportFileName(FTPFile[] files) {
-    String lastReportFileName = null;
+  /**
+   * Status of a submission for which there is no new report: the one of its last report, or 'processing' if it has
+   * no report yet
+   */
+  private static SubmissionStatus getCurrentStatus(NcbiSubmissionStatusTask statusTask) {
+    String submissionID = statusTask.getSubmissionID();
+    if (statusTask.getLastReport() != null) { // the report has already been parsed
+      return NcbiSubmissionStatusUtil.toSubmissionStatus(submissionID, statusTask.getLastReport());
+    } else { // the folder does not contain any report file yet
+      String message = SubmissionStatusUtil.getShortStatusMessage(submissionID, SubmissionState.PROCESSING)
+          + "\n" + "The submission is being processed";
+      return new SubmissionStatus(submissionID, SubmissionState.PROCESSING, message);
+    }
+  }
+
+  /**
+   * Returns the highest report number found in the given file names (e.g., report.2.xml -> 2), or -1 if there is no
+   * report
+   */
+  private static int getMostRecentReportNumber(String[] fileNames) {
     int lastReportNumber = -1;
-    for (FTPFile file : files) {
-      if (file.isFile()) {
-        if (file.getName().matches(NcbiConstants.NCBI_REPORT_REGEX)) {
-          int currentReportNumber = getReportNumber(file.getName());
-          if (currentReportNumber > lastReportNumber) {
-            lastReportFileName = file.getName();
-            lastReportNumber = currentReportNumber;
-          }
+    if (fileNames != null) {
+      for (String fileName : fileNames) {
+        // Some servers return the names with the path of the folder
+        Matcher matcher = REPORT_FILE_NAME_PATTERN.matcher(fileName.substring(fileName.lastIndexOf('/') + 1));
+        if (matcher.matches()) {
+          lastReportNumber = Math.max(lastReportNumber, Integer.parseInt(matcher.group(2)));
         }
       }
     }
-    return Optional.ofNullable(lastReportFileName);
+    return lastReportNumber;
+  }
+
+  private static String getReportFileName(int reportNumber) {
+    return "report." + reportNumber + ".xml";
   }
 
   /**
-   * Returns the number of the status report from the file name (e.g., report.2.xml -> 2)
+   * Download a file of the current folder. The transfer is always completed, even if reading it fails, as the session
+   * is shared with the other checks of the batch: a transfer reply left unread would be taken as the reply of their
+   * next command.
    */
-  private static int getReportNumber(String fileName) {
-    int index1 = 6; // index of the first '.'
-    int index2 = fileName.indexOf(".xml");
-    return Integer.parseInt(fileName.substring(index1 + 1, index2));
+  private static byte[] retrieveFile(FTPClient ftpClient, String fileName) throws IOException {
+    InputStream inputStream = ftpClient.retrieveFileStream(fileName);
+    if (inputStream == null) {
+      throw new IOException("Couldn't open the file " + fileName);
+    }
+    byte[] content;
+    try {
+      content = IOUtils.toByteArray(inputStream);
+    } finally {
+      inputStream.close();
+      if (!ftpClient.completePendingCommand()) {
+        throw new IOException("Couldn't retrieve the file " + fileName);
+      }
+    }
+    return content;
   }
 
-  private static NcbiSubmissionStatusReport getSubmissionStatusFromReport(InputStream inputStream)
-      throws ParserConfigurationException, IOException, SAXException, TransformerException {
-
-    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder builder = factory.newDocumentBuilder();
-    Document statusReport = builder.parse(inputStream);
+  private static NcbiSubmissionStatusReport getSubmissionStatusFromReport(byte[] statusReport)
+      throws XMLStreamException, TransformerException {
 
     // Get the submission status from the xml
-    Node submissionStatus = statusReport.getElementsByTagName("SubmissionStatus").item(0);
-    String status = submissionStatus.getAttributes().getNamedItem("status").getNodeValue();
+    NcbiSubmissionState status = NcbiSubmissionStatusUtil.readSubmissionState(statusReport);
     // Generate plain text report
     String textReport = NcbiSubmissionStatusUtil.generatePlainTextReport(statusReport);
 
-    return new NcbiSubmissionStatusReport(NcbiSubmissionState.fromString(status), statusReport.toString(),
-        textReport);
+    return new NcbiSubmissionStatusReport(status, new String(statusReport, StandardCharsets.UTF_8), textReport);
+  }
+
+  public static FTPClient connect(FTPConfig ftpConfig) throws UploaderCreationException {
+    return connect(ftpConfig.getHost(), ftpConfig.getUser(), ftpConfig.getPassword());
+  }
+
+  public static void disconnect(FTPClient ftpClient) {
+    // Close the FTP connection
+    if (ftpClient != null && ftpClient.isConnected()) {
+      try {
+        ftpClient.disconnect();
+      } catch (IOException e) {
+        // do nothing
+      }
+    }
   }
 
   private static FTPClient connect(String host, String user, String password) throws UploaderCreationException {
     FTPClient ftpClient = new FTPClient();
+    // A stalled server must not hold the batch (and the checks waiting for it) forever
+    ftpClient.setConnectTimeout(NcbiConstants.NCBI_STATUS_FTP_CONNECT_TIMEOUT);
+    ftpClient.setDefaultTimeout(NcbiConstants.NCBI_STATUS_FTP_SOCKET_TIMEOUT);
+    ftpClient.setDataTimeout(NcbiConstants.NCBI_STATUS_FTP_SOCKET_TIMEOUT);
     try {
       ftpClient.connect(host);
       int replyCode = ftpClient.getReplyCode();
@@ -1,15 +1,24 @@
 package org.metadatacenter.submission.ncbi.status;
 
 import org.metadatacenter.config.FTPConfig;
+import org.metadatacenter.submission.ncbi.NcbiConstants;
+import org.metadatacenter.submission.ncbi.status.report.NcbiSubmissionStatusReport;
 import org.metadatacenter.submission.status.SubmissionStatus;
 import org.metadatacenter.submission.status.SubmissionStatusTask;
 import org.metadatacenter.submission.status.SubmissionType;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public class NcbiSubmissionStatusTask extends SubmissionStatusTask {
 
   private FTPConfig ftpConfig;
   private String submissionFolder;
-  private String lastStatusReportFile;
+  // Last report parsed for this submission, so that it is not downloaded and parsed again on every check
+  private int lastReportNumber = -1;
+  private NcbiSubmissionStatusReport lastReport;
+  // Consecutive checks that could not find the submission folder
+  private int missingFolderChecks;
 
   // TODO: keep the statusURL in the parent. Not needed here.
   public NcbiSubmissionStatusTask(String submissionID, SubmissionType submissionType, String userID, String
@@ -22,8 +31,20 @@ public class NcbiSubmissionStatusTask extends SubmissionStatusTask {
 
   @Override
   protected SubmissionStatus callSubmissionStatusEndpoint() throws Exception {
-    return NcbiFtpStatusChecker.getNcbiSubmissionStatus(getSubmissionID(), ftpConfig, submissionFolder,
-        lastStatusReportFile);
+    return NcbiFtpStatusBatcher.getInstance().getNcbiSubmissionStatus(this);
+  }
+
+  /**
+   * The check joins the next FTP batch; no thread waits for it.
+   */
+  @Override
+  public CompletableFuture<SubmissionStatus> callAsync(Executor executor) {
+    return NcbiFtpStatusBatcher.getInstance().submit(this);
+  }
+
+  @Override
+  public long getTimeout() {
+    return NcbiConstants.NCBI_STATUS_CHECK_TIMEOUT;
   }
 
   public FTPConfig getFtpConfig() {
@@ -34,11 +55,24 @@ public class NcbiSubmissionStatusTask extends SubmissionStatusTask {
     return submissionFolder;
   }
 
-  public String getLastStatusReportFile() {
-    return lastStatusReportFile;
+  public synchronized int getLastReportNumber() {
+    return lastReportNumber;
+  }
+
+  public synchronized NcbiSubmissionStatusReport getLastReport() {
+    return lastReport;
+  }
+
+  public synchronized void setLastReport(int lastReportNumber, NcbiSubmissionStatusReport lastReport) {
+    this.lastReportNumber = lastReportNumber;
+    this.lastReport = lastReport;
+  }
+
+  public synchronized int incrementMissingFolderChecks() {
+    return ++missingFolderChecks;
   }
 
-  public synchronized void setLastStatusReportFile(String lastStatusReportFile) {
-    this.lastStatusReportFile = lastStatusReportFile;
+  public synchronized void resetMissingFolderChecks() {
+    missingFolderChecks = 0;
   }
 }
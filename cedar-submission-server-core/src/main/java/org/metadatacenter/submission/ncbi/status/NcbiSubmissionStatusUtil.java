@@ -6,20 +6,31 @@ import org.metadatacenter.submission.ncbi.status.report.NcbiSubmissionStatusRepo
 import org.metadatacenter.submission.status.SubmissionState;
 import org.metadatacenter.submission.status.SubmissionStatus;
 import org.metadatacenter.submission.status.SubmissionStatusUtil;
-import org.w3c.dom.Document;
 
-import javax.xml.transform.Source;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class NcbiSubmissionStatusUtil {
 
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+  // The report stylesheet is compiled once. Transformers are not thread-safe, so they are pooled and reused
+  private static final Templates REPORT_TEMPLATES = compileReportTemplates();
+  private static final Queue<Transformer> REPORT_TRANSFORMERS = new ConcurrentLinkedQueue<>();
+
   public static SubmissionStatus toSubmissionStatus(String submissionId, NcbiSubmissionStatusReport report) {
     SubmissionState submissionState = null;
     if (report.getState().equals(NcbiSubmissionState.SUBMITTED)) {
@@ -42,16 +53,54 @@ public class NcbiSubmissionStatusUtil {
     return new SubmissionStatus(submissionId, submissionState, message);
   }
 
-  public static String generatePlainTextReport(Document xmlReport) throws TransformerException {
-    TransformerFactory factory = TransformerFactory.newInstance();
+  /**
+   * Extracts the submission state (SubmissionStatus/@status) from a report. The report is streamed, and reading stops
+   * as soon as the root element has been read.
+   */
+  public static NcbiSubmissionState readSubmissionState(byte[] xmlReport) throws XMLStreamException {
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(xmlReport));
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT && "SubmissionStatus".equals(reader.getLocalName())) {
+          return NcbiSubmissionState.fromString(reader.getAttributeValue(null, "status"));
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    throw new XMLStreamException("The report does not contain a SubmissionStatus element");
+  }
+
+  public static String generatePlainTextReport(byte[] xmlReport) throws TransformerException {
+    Transformer transformer = REPORT_TRANSFORMERS.poll();
+    if (transformer == null) {
+      transformer = REPORT_TEMPLATES.newTransformer();
+    }
+    try {
+      StringWriter writer = new StringWriter();
+      transformer.transform(new StreamSource(new ByteArrayInputStream(xmlReport)), new StreamResult(writer));
+      return writer.getBuffer().toString();
+    } finally {
+      transformer.reset();
+      REPORT_TRANSFORMERS.offer(transformer);
+    }
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  private static Templates compileReportTemplates() {
     InputStream inputStream =
         NcbiSubmissionStatusUtil.class.getClassLoader().getResourceAsStream(NcbiConstants.NCBI_XSLT_PATH);
-    Source xslSource = new StreamSource(inputStream);
-    Transformer transformer = factory.newTransformer(xslSource);
-    StringWriter writer = new StringWriter();
-    transformer.transform(new DOMSource(xmlReport), new StreamResult(writer));
-    String output = writer.getBuffer().toString();
-    return output;
+    try {
+      return TransformerFactory.newInstance().newTemplates(new StreamSource(inputStream));
+    } catch (TransformerConfigurationException e) {
+      throw new IllegalStateException("Unable to compile " + NcbiConstants.NCBI_XSLT_PATH, e);
+    }
   }
 
 }
@@ -14,6 +14,8 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class NcbiFtpUploadService {
 
@@ -33,7 +35,29 @@ public class NcbiFtpUploadService {
   public static void uploadToNcbi(String submissionDir, Collection<File> listOfFiles, FTPConfig ftpConfig, boolean
       uploadSubmitReadyFile) throws IOException,
       UploaderCreationException {
+    try {
+      uploadToNcbi(submissionDir, listOfFiles, ftpConfig, uploadSubmitReadyFile, file -> {
+      }, () -> false);
+    } catch (IOException e) {
+      logger.warn("Submission upload failed: ", e.getMessage());
+    }
+  }
+
+  /**
+   * Same as {@link #uploadToNcbi(String, Collection, FTPConfig, boolean)}, but the upload can be stopped between two
+   * files. The 'submit.ready' file is only uploaded once all the other files have been transferred.
+   *
+   * @param onFileUploaded Called after each file is transferred, so that the caller can checkpoint the progress
+   * @param stopRequested  Checked before each file. If it returns true, the upload stops
+   * @return true if all the files were uploaded, false if the upload was stopped
+   * @throws IOException When upload failed due to I/O difficulties. Unlike a stop, this is not reported as a
+   *                     partial upload: the caller must not consider the files uploaded
+   */
+  public static boolean uploadToNcbi(String submissionDir, Collection<File> listOfFiles, FTPConfig ftpConfig, boolean
+      uploadSubmitReadyFile, Consumer<File> onFileUploaded, BooleanSupplier stopRequested) throws IOException,
+      UploaderCreationException {
     FileUploader uploader = null;
+    boolean completed = false;
 
     logger.info("Submission upload, submissionDir = " + submissionDir + ", conf.submissionDir " + ftpConfig
         .getSubmissionDirectory());
@@ -44,12 +68,12 @@ public class NcbiFtpUploadService {
           ftpConfig.getUser(),
           ftpConfig.getPassword(),
           Optional.of(ftpConfig.getSubmissionDirectory()));
-      uploadResourceFiles(uploader, submissionDir, listOfFiles);
-      if (uploadSubmitReadyFile) {
-        uploadSubmitReadyFile(uploader, submissionDir);
+      if (uploadResourceFiles(uploader, submissionDir, listOfFiles, onFileUploaded, stopRequested)) {
+        if (uploadSubmitReadyFile) {
+          uploadSubmitReadyFile(uploader, submissionDir);
+        }
+        completed = true;
       }
-    } catch (IOException e) {
-      logger.warn("Submission upload failed: ", e.getMessage());
     } finally {
       if (uploader != null) {
         try {
@@ -60,20 +84,28 @@ public class NcbiFtpUploadService {
         }
       }
     }
+    return completed;
   }
 
-  private static void uploadResourceFiles(FileUploader uploader, String submissionDir, Collection<File> listOfFiles)
+  private static boolean uploadResourceFiles(FileUploader uploader, String submissionDir, Collection<File> listOfFiles,
+                                             Consumer<File> onFileUploaded, BooleanSupplier stopRequested)
       throws
       IOException {
 
     logger.info("uploadResourceFiles.submissionDir " + submissionDir);
 
     for (File file : listOfFiles) {
+      if (stopRequested.getAsBoolean()) {
+        logger.info("Submission upload stopped before '{}' file", file.getName());
+        return false;
+      }
       Stopwatch stopwatch = Stopwatch.createStarted();
       logger.info("Submission in progress: Uploading '{}' file...", file.getName());
       uploader.store(submissionDir, file);
       logger.info("... uploaded in {} s", stopwatch.elapsed(TimeUnit.SECONDS));
+      onFileUploaded.accept(file);
     }
+    return true;
   }
 
   private static void uploadSubmitReadyFile(FileUploader uploader, String submissionDir) throws IOException {
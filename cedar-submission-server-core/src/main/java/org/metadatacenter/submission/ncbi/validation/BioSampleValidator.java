@@ -6,18 +6,18 @@ import generated.TypeStatus;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.metadatacenter.submission.CEDARValidationResponse;
+import org.metadatacenter.submission.http.HttpUpstream;
+import org.metadatacenter.submission.http.SubmissionHttpClient;
+import org.metadatacenter.submission.xml.JaxbContextRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.Response;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import java.io.File;
 import java.io.IOException;
@@ -52,7 +52,6 @@ public class BioSampleValidator
    */
   public CEDARValidationResponse validateBioSampleSubmission(String bioSampleSubmissionXML)
   {
-    CloseableHttpClient client = HttpClientBuilder.create().build();
     HttpPost post = new HttpPost(BIOSAMPLE_VALIDATION_URL);
     StringEntity requestEntity = new StringEntity(bioSampleSubmissionXML, ContentType.APPLICATION_XML);
     CloseableHttpResponse response = null;
@@ -70,7 +69,7 @@ public class BioSampleValidator
       post.setHeader("Content-type", "application/xml");
       post.setEntity(requestEntity);
 
-      response = client.execute(post);
+      response = SubmissionHttpClient.getInstance().execute(HttpUpstream.NCBI_VALIDATOR, post);
 
       if (response.getStatusLine().getStatusCode() == 200) {
         HttpEntity entity = response.getEntity();
@@ -83,13 +82,7 @@ public class BioSampleValidator
     } catch (IOException | JAXBException e) {
       return generateUnexpectedConnectionErrorCEDARValidationResponse(e.getMessage());
     } finally {
-      if (response != null) {
-        try {
-          response.close();
-        } catch (IOException e) {
-          logger.warn("Error closing HTTP response for NCBI BioSample validator");
-        }
-      }
+      HttpClientUtils.closeQuietly(response);
     }
   }
 
@@ -184,10 +177,7 @@ public class BioSampleValidator
    */
   private BioSampleValidate bioSampleXMLResponse2BioSampleValidate(InputStream xmlResponseStream) throws JAXBException
   {
-    JAXBContext jaxbBioSampleValidateContext = JAXBContext.newInstance(BioSampleValidate.class);
-    Unmarshaller jaxbBioSampleValidateUnmarshaller = jaxbBioSampleValidateContext.createUnmarshaller();
-    BioSampleValidate bioSampleValidate = (BioSampleValidate)jaxbBioSampleValidateUnmarshaller
-      .unmarshal(xmlResponseStream);
+    BioSampleValidate bioSampleValidate = JaxbContextRegistry.unmarshal(BioSampleValidate.class, xmlResponseStream);
     return bioSampleValidate;
   }
 }
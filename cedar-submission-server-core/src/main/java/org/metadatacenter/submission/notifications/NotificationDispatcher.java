@@ -0,0 +1,161 @@
+package org.metadatacenter.submission.notifications;
+
+import io.dropwizard.lifecycle.Managed;
+import org.metadatacenter.submission.concurrent.IoTaskExecutor;
+import org.metadatacenter.submission.status.SubmissionStatusDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the status notifications in the background, so that status processing never waits for the messaging server.
+ * There is at most one pending notification per submission: a newer status replaces the one not sent yet. Failed
+ * deliveries are retried with exponential backoff. The number of pending notifications is bounded; notifications over
+ * the limit are dropped (and logged).
+ * <p>
+ * The deliveries are blocking calls to the messaging server, so they run on an {@link IoTaskExecutor}; a single timer
+ * thread only schedules the retries.
+ */
+public class NotificationDispatcher implements Managed {
+
+  final static Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+  public static int SENDER_THREADS = 2; // platform mode
+  public static int SENDER_VIRTUAL_CONCURRENCY = 100; // virtual mode
+  public static int MAX_PENDING_NOTIFICATIONS = 10000;
+  public static int MAX_DELIVERY_ATTEMPTS = 5;
+  public static long RETRY_DELAY = 1000; // ms; doubled after each failed attempt
+  public static long STOP_TIMEOUT = 5000; // ms; time given to the deliveries in progress on shutdown
+
+  private static NotificationDispatcher singleInstance;
+
+  private final ScheduledThreadPoolExecutor timer;
+  private final IoTaskExecutor sender;
+  private final Map<String, PendingNotification> pendingNotifications = new LinkedHashMap<>(); // guarded by 'this'
+
+  private NotificationDispatcher() {
+    timer = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "status-notification-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // Pending retries are not worth delaying the shutdown
+    timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    sender = IoTaskExecutor.create("status-notification", SENDER_THREADS, SENDER_VIRTUAL_CONCURRENCY);
+  }
+
+  public static synchronized NotificationDispatcher getInstance() {
+    if (singleInstance == null) {
+      singleInstance = new NotificationDispatcher();
+    }
+    return singleInstance;
+  }
+
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public void stop() {
+    timer.shutdown();
+    sender.shutdown();
+    try {
+      sender.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      if (!pendingNotifications.isEmpty()) {
+        logger.warn(pendingNotifications.size() + " status notification(s) not sent on shutdown");
+      }
+    }
+  }
+
+  /**
+   * Queue a notification for the current status of a submission. Returns immediately.
+   */
+  public void dispatch(SubmissionStatusDescriptor submissionStatusDescriptor) {
+    String submissionID = submissionStatusDescriptor.getSubmissionID();
+    synchronized (this) {
+      PendingNotification pendingNotification = pendingNotifications.get(submissionID);
+      if (pendingNotification != null) { // coalesced: the delivery already scheduled sends the latest status
+        pendingNotification.submissionStatusDescriptor = submissionStatusDescriptor;
+        pendingNotification.attempts = 0;
+        return;
+      }
+      if (pendingNotifications.size() >= MAX_PENDING_NOTIFICATIONS) {
+        logger.warn("Too many pending status notifications. Dropping notification for submission " + submissionID);
+        return;
+      }
+      pendingNotifications.put(submissionID, new PendingNotification(submissionStatusDescriptor));
+    }
+    schedule(submissionID, 0);
+  }
+
+  private void deliver(String submissionID) {
+    SubmissionStatusDescriptor submissionStatusDescriptor;
+    synchronized (this) {
+      PendingNotification pendingNotification = pendingNotifications.get(submissionID);
+      if (pendingNotification == null) {
+        return;
+      }
+      submissionStatusDescriptor = pendingNotification.submissionStatusDescriptor;
+    }
+
+    boolean sent;
+    try {
+      sent = StatusNotifier.getInstance().sendMessage(submissionStatusDescriptor);
+    } catch (Exception e) {
+      logger.warn("Error sending the notification for submission " + submissionID + ": " + e.getMessage());
+      sent = false;
+    }
+
+    long retryDelay = -1;
+    synchronized (this) {
+      PendingNotification pendingNotification = pendingNotifications.get(submissionID);
+      if (pendingNotification.submissionStatusDescriptor != submissionStatusDescriptor) {
+        retryDelay = 0; // a newer status arrived during the delivery
+      } else if (sent) {
+        pendingNotifications.remove(submissionID);
+      } else if (++pendingNotification.attempts >= MAX_DELIVERY_ATTEMPTS) {
+        logger.error("Giving up the notification for submission " + submissionID + " after "
+            + pendingNotification.attempts + " attempts");
+        pendingNotifications.remove(submissionID);
+      } else {
+        retryDelay = RETRY_DELAY << (pendingNotification.attempts - 1);
+      }
+    }
+    if (retryDelay >= 0) {
+      schedule(submissionID, retryDelay);
+    }
+  }
+
+  private void schedule(String submissionID, long delay) {
+    try {
+      if (delay == 0) {
+        sender.execute(() -> deliver(submissionID));
+      } else {
+        timer.schedule(() -> schedule(submissionID, 0), delay, TimeUnit.MILLISECONDS);
+      }
+    } catch (RejectedExecutionException e) {
+      logger.warn("Notification for submission " + submissionID + " not sent: the dispatcher is stopped");
+      synchronized (this) {
+        pendingNotifications.remove(submissionID);
+      }
+    }
+  }
+
+  private static class PendingNotification {
+    private SubmissionStatusDescriptor submissionStatusDescriptor; // guarded by the dispatcher
+    private int attempts; // guarded by the dispatcher
+
+    private PendingNotification(SubmissionStatusDescriptor submissionStatusDescriptor) {
+      this.submissionStatusDescriptor = submissionStatusDescriptor;
+    }
+  }
+}
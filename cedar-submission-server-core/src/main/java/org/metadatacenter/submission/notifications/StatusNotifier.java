@@ -23,9 +23,15 @@ public class StatusNotifier {
   private static StatusNotifier singleInstance = null;
   private static boolean initialized = false;
 
+  // The admin authorization header is reused for this long, instead of being fetched for every message
+  public static long ADMIN_AUTH_HEADER_TTL = 5 * 60 * 1000; // ms
+
   private static CedarConfig cedarConfig = null;
   private static Client client = null;
 
+  private String adminUserAuthHeader; // guarded by 'this'
+  private long adminUserAuthHeaderExpiration; // guarded by 'this'
+
   private StatusNotifier(CedarConfig cfg) {
     cedarConfig = cfg;
     client = ClientBuilder.newClient();
@@ -46,7 +52,13 @@ public class StatusNotifier {
     }
   }
 
-  public void sendMessage(SubmissionStatusDescriptor submissionStatusDescriptor) {
+  /**
+   * Send a message to the user about the status of a submission. Use {@link NotificationDispatcher} to send it
+   * asynchronously.
+   *
+   * @return true if the messaging server accepted the message
+   */
+  public boolean sendMessage(SubmissionStatusDescriptor submissionStatusDescriptor) {
 
     String url = cedarConfig.getMicroserviceUrlUtil().getMessaging().getMessages();
     logger.info("Notification url:" + url);
@@ -77,13 +89,34 @@ public class StatusNotifier {
 
     Entity postContent = Entity.entity(content, MediaType.APPLICATION_JSON);
 
-    String adminUserAuthHeader = TestUserUtil.getAdminUserAuthHeader(cedarConfig);
+    String authHeader = getAdminUserAuthHeader();
+
+    Response response = client.target(url).request().header("Authorization", authHeader).post(postContent);
+    try {
+      if (response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
+        invalidateAdminUserAuthHeader(authHeader);
+      }
+      if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+        logger.warn("Internal error, statusCode=" + response.getStatus() + " postContent=" + postContent);
+        return false;
+      }
+      return true;
+    } finally {
+      response.close();
+    }
+  }
 
-    Response response = client.target(url).request().header("Authorization", adminUserAuthHeader).post(postContent);
+  private synchronized String getAdminUserAuthHeader() {
+    if (adminUserAuthHeader == null || System.currentTimeMillis() >= adminUserAuthHeaderExpiration) {
+      adminUserAuthHeader = TestUserUtil.getAdminUserAuthHeader(cedarConfig);
+      adminUserAuthHeaderExpiration = System.currentTimeMillis() + ADMIN_AUTH_HEADER_TTL;
+    }
+    return adminUserAuthHeader;
+  }
 
-    if (response.getStatus() != Response.Status.OK.getStatusCode()) {
-      logger.warn("Internal error, statusCode=" + response.getStatus() + " postContent=" + postContent);
-      throw new InternalError("Error sending message to user");
+  private synchronized void invalidateAdminUserAuthHeader(String authHeader) {
+    if (authHeader != null && authHeader.equals(adminUserAuthHeader)) {
+      adminUserAuthHeader = null;
     }
   }
 }
@@ -0,0 +1,12 @@
+package org.metadatacenter.submission.redis;
+
+public class RedisConstants {
+
+  /* Shared connection pool */
+  public static int POOL_MAX_TOTAL = 64;
+  public static int POOL_MAX_IDLE = 16;
+  public static int POOL_MIN_IDLE = 4;
+  public static long POOL_MAX_WAIT = 2000; // ms; fail fast rather than queue forever when the pool is exhausted
+  public static long POOL_EVICTION_INTERVAL = 30000; // ms
+
+}
@@ -0,0 +1,94 @@
+package org.metadatacenter.submission.redis;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import org.metadatacenter.config.CacheServerPersistent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Redis client shared by the submission server components (queue, de-duplication markers, leases, status storage).
+ * All of them borrow connections from a single tuned pool instead of opening one pool each. Multi-command operations
+ * should go through {@link #pipelined(Consumer)} so that they cost a single round trip.
+ */
+public class SubmissionRedisClient implements Managed {
+
+  final static Logger logger = LoggerFactory.getLogger(SubmissionRedisClient.class);
+
+  private final JedisPool pool;
+
+  public SubmissionRedisClient(CacheServerPersistent cacheConfig) {
+    this.pool = new JedisPool(createPoolConfig(), cacheConfig.getConnection().getHost(),
+        cacheConfig.getConnection().getPort(), cacheConfig.getConnection().getTimeout());
+  }
+
+  public JedisPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Run a command (or a few dependent ones) on a pooled connection.
+   */
+  public <T> T execute(Function<Jedis, T> command) {
+    try (Jedis jedis = pool.getResource()) {
+      return command.apply(jedis);
+    }
+  }
+
+  /**
+   * Queue several commands and send them in one round trip.
+   *
+   * @return the replies, in the order the commands were queued
+   */
+  public List<Object> pipelined(Consumer<Pipeline> commands) {
+    try (Jedis jedis = pool.getResource()) {
+      Pipeline pipeline = jedis.pipelined();
+      commands.accept(pipeline);
+      return pipeline.syncAndReturnAll();
+    }
+  }
+
+  /**
+   * Expose the pool usage, so that its size can be tuned from the observed load.
+   */
+  public void registerMetrics(MetricRegistry metrics) {
+    String prefix = MetricRegistry.name(SubmissionRedisClient.class, "pool");
+    metrics.register(MetricRegistry.name(prefix, "active"), (Gauge<Integer>) pool::getNumActive);
+    metrics.register(MetricRegistry.name(prefix, "idle"), (Gauge<Integer>) pool::getNumIdle);
+    metrics.register(MetricRegistry.name(prefix, "waiters"), (Gauge<Integer>) pool::getNumWaiters);
+    metrics.register(MetricRegistry.name(prefix, "max-total"), (Gauge<Integer>) () -> RedisConstants.POOL_MAX_TOTAL);
+    metrics.register(MetricRegistry.name(prefix, "mean-borrow-wait-ms"),
+        (Gauge<Long>) pool::getMeanBorrowWaitTimeMillis);
+  }
+
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public void stop() {
+    logger.info("Closing the shared Redis pool");
+    pool.close();
+  }
+
+  private static JedisPoolConfig createPoolConfig() {
+    JedisPoolConfig poolConfig = new JedisPoolConfig();
+    poolConfig.setMaxTotal(RedisConstants.POOL_MAX_TOTAL);
+    poolConfig.setMaxIdle(RedisConstants.POOL_MAX_IDLE);
+    poolConfig.setMinIdle(RedisConstants.POOL_MIN_IDLE);
+    poolConfig.setMaxWaitMillis(RedisConstants.POOL_MAX_WAIT);
+    // Drop connections closed by the server while idle instead of handing them out
+    poolConfig.setTestWhileIdle(true);
+    poolConfig.setTimeBetweenEvictionRunsMillis(RedisConstants.POOL_EVICTION_INTERVAL);
+    return poolConfig;
+  }
+}
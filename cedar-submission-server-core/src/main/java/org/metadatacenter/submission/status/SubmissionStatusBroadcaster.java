@@ -0,0 +1,239 @@
+package org.metadatacenter.submission.status;
+
+import org.metadatacenter.submission.concurrent.IoTaskExecutor;
+import org.metadatacenter.submission.upload.flow.FlowUploadUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Pushes status changes to the clients waiting for them: long-poll requests waiting for a given submission, and
+ * event streams subscribed to all the submissions of a user. A change is only sent to the waiters of its submission
+ * and the subscribers of its user, so the cost is proportional to the number of changes, not to the number of clients.
+ * <p>
+ * Changes are reported by the thread that applies the status check results, so they are never written to the
+ * subscribers on that thread. Each subscriber has a queue of at most SUBSCRIBER_QUEUE_SIZE events, written to the
+ * client on a shared I/O executor. A subscriber that falls that far behind (e.g., a stalled connection) is
+ * disconnected.
+ */
+public class SubmissionStatusBroadcaster implements SubmissionStatusListener {
+
+  final static Logger logger = LoggerFactory.getLogger(SubmissionStatusBroadcaster.class);
+
+  // Lets subscribers detect closed connections between two changes
+  public static long PING_INTERVAL = 30000; // ms
+  public static int SUBSCRIBER_QUEUE_SIZE = 100; // events
+  public static int DELIVERY_THREADS = 4; // platform mode
+  public static int DELIVERY_VIRTUAL_CONCURRENCY = 1000; // virtual mode
+
+  private static SubmissionStatusBroadcaster singleInstance;
+
+  private final Map<String, List<CompletableFuture<SubmissionStatusDescriptor>>> waiters = new ConcurrentHashMap<>();
+  private final Map<String, Map<Subscriber, SubscriberQueue>> subscribers = new ConcurrentHashMap<>();
+  private final IoTaskExecutor deliveryExecutor;
+
+  public interface Subscriber {
+    void onStatusChanged(SubmissionStatusDescriptor submissionStatusDescriptor) throws IOException;
+
+    void ping() throws IOException;
+
+    void close() throws IOException;
+  }
+
+  private SubmissionStatusBroadcaster() {
+    deliveryExecutor = IoTaskExecutor.create("submission-status-events", DELIVERY_THREADS,
+        DELIVERY_VIRTUAL_CONCURRENCY);
+    ScheduledExecutorService pinger = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "submission-status-ping");
+      thread.setDaemon(true);
+      return thread;
+    });
+    pinger.scheduleWithFixedDelay(this::pingSubscribers, PING_INTERVAL, PING_INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  public static synchronized SubmissionStatusBroadcaster getInstance() {
+    if (singleInstance == null) {
+      singleInstance = new SubmissionStatusBroadcaster();
+    }
+    return singleInstance;
+  }
+
+  /**
+   * Completes with the new status at the next change of the given submission. Cancel the future to stop waiting.
+   */
+  public CompletableFuture<SubmissionStatusDescriptor> awaitChange(String submissionID) {
+    CompletableFuture<SubmissionStatusDescriptor> future = new CompletableFuture<>();
+    waiters.computeIfAbsent(submissionID, k -> new CopyOnWriteArrayList<>()).add(future);
+    future.whenComplete((descriptor, e) -> removeWaiter(submissionID, future));
+    return future;
+  }
+
+  public void subscribe(String userID, Subscriber subscriber) {
+    subscribe(userID, subscriber, Collections::emptyList);
+  }
+
+  /**
+   * Subscribes to the status changes of the user's submissions, and sends the given initial events before them. The
+   * initial events are read once the subscriber is registered, so a change made meanwhile is sent after them rather
+   * than lost. All the events go through the subscriber queue, so they are written by a single task, in order.
+   */
+  public void subscribe(String userID, Subscriber subscriber,
+                        Supplier<? extends Collection<SubmissionStatusDescriptor>> initialEvents) {
+    SubscriberQueue subscriberQueue = new SubscriberQueue(userID, subscriber);
+    subscribers.computeIfAbsent(getUserKey(userID), k -> new ConcurrentHashMap<>()).put(subscriber, subscriberQueue);
+    subscriberQueue.start(initialEvents.get());
+  }
+
+  public void unsubscribe(String userID, Subscriber subscriber) {
+    subscribers.computeIfPresent(getUserKey(userID), (k, userSubscribers) -> {
+      userSubscribers.remove(subscriber);
+      return userSubscribers.isEmpty() ? null : userSubscribers;
+    });
+  }
+
+  @Override
+  public void onStatusChanged(SubmissionStatusDescriptor submissionStatusDescriptor) {
+    List<CompletableFuture<SubmissionStatusDescriptor>> submissionWaiters =
+        waiters.remove(submissionStatusDescriptor.getSubmissionID());
+    if (submissionWaiters != null) {
+      for (CompletableFuture<SubmissionStatusDescriptor> waiter : submissionWaiters) {
+        waiter.complete(submissionStatusDescriptor);
+      }
+    }
+    String userID = submissionStatusDescriptor.getUserID();
+    Map<Subscriber, SubscriberQueue> userSubscribers = subscribers.get(getUserKey(userID));
+    if (userSubscribers != null) {
+      for (SubscriberQueue subscriberQueue : userSubscribers.values()) {
+        subscriberQueue.offer(Optional.of(submissionStatusDescriptor));
+      }
+    }
+  }
+
+  /**
+   * Submissions store either the full CEDAR user id (a URL) or its last fragment, so users are matched on the
+   * latter.
+   */
+  public static String getUserKey(String userID) {
+    return FlowUploadUtil.getLastFragmentOfUrl(userID);
+  }
+
+  private void removeWaiter(String submissionID, CompletableFuture<SubmissionStatusDescriptor> future) {
+    waiters.computeIfPresent(submissionID, (k, submissionWaiters) -> {
+      submissionWaiters.remove(future);
+      return submissionWaiters.isEmpty() ? null : submissionWaiters;
+    });
+  }
+
+  private void pingSubscribers() {
+    for (Map<Subscriber, SubscriberQueue> userSubscribers : subscribers.values()) {
+      for (SubscriberQueue subscriberQueue : userSubscribers.values()) {
+        subscriberQueue.ping();
+      }
+    }
+  }
+
+  /**
+   * Events waiting to be written to a subscriber. At most one task writes them at a time, so they are written in
+   * order. Nothing is written until the initial events are known; they are written before the queued changes.
+   */
+  private class SubscriberQueue {
+    private final String userID;
+    private final Subscriber subscriber;
+    private final BlockingQueue<Optional<SubmissionStatusDescriptor>> events; // empty for a ping
+    private final AtomicBoolean writing = new AtomicBoolean(true); // held until start()
+    private Queue<SubmissionStatusDescriptor> initialEvents; // only accessed by the writing task
+
+    private SubscriberQueue(String userID, Subscriber subscriber) {
+      this.userID = userID;
+      this.subscriber = subscriber;
+      this.events = new ArrayBlockingQueue<>(SUBSCRIBER_QUEUE_SIZE);
+    }
+
+    private void start(Collection<SubmissionStatusDescriptor> initialEvents) {
+      this.initialEvents = new ArrayDeque<>(initialEvents);
+      writing.set(false);
+      write();
+    }
+
+    private void offer(Optional<SubmissionStatusDescriptor> event) {
+      if (!events.offer(event)) {
+        logger.warn("Status subscriber of user " + userID + " is too slow. Disconnecting it");
+        disconnect();
+        return;
+      }
+      write();
+    }
+
+    private void ping() {
+      if (events.isEmpty()) { // otherwise the pending events will show whether the connection is still open
+        offer(Optional.empty());
+      }
+    }
+
+    private void write() {
+      if (writing.compareAndSet(false, true)) {
+        try {
+          deliveryExecutor.execute(this::writeEvents);
+        } catch (RejectedExecutionException e) {
+          writing.set(false);
+        }
+      }
+    }
+
+    private void writeEvents() {
+      try {
+        SubmissionStatusDescriptor initialEvent;
+        while ((initialEvent = initialEvents.poll()) != null) {
+          subscriber.onStatusChanged(initialEvent);
+        }
+        Optional<SubmissionStatusDescriptor> event;
+        while ((event = events.poll()) != null) {
+          if (event.isPresent()) {
+            subscriber.onStatusChanged(event.get());
+          } else {
+            subscriber.ping();
+          }
+        }
+      } catch (IOException e) {
+        disconnect();
+        return;
+      } catch (Exception e) {
+        logger.warn("Error while writing to a status subscriber: " + e.getMessage());
+      } finally {
+        writing.set(false);
+      }
+      if (!events.isEmpty()) { // offered after the last poll
+        write();
+      }
+    }
+
+    private void disconnect() {
+      unsubscribe(userID, subscriber);
+      events.clear();
+      try {
+        subscriber.close();
+      } catch (IOException e) {
+        logger.debug("Error while closing a status subscriber: " + e.getMessage());
+      }
+    }
+  }
+}
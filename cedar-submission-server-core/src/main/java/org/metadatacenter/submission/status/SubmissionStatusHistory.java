@@ -0,0 +1,82 @@
+package org.metadatacenter.submission.status;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the final status of the submissions that are no longer tracked (succeeded, rejected or failed), so that
+ * lookups made after completion are answered locally instead of asking NCBI or ImmPort again. Only the status and the
+ * owner are kept. At most maxSize submissions are kept, each for ttl ms at most.
+ */
+public class SubmissionStatusHistory {
+
+  public static final int DEFAULT_MAX_SIZE = 10000;
+  public static final long DEFAULT_TTL = 24 * 60 * 60 * 1000; // ms
+
+  private final int maxSize;
+  private final long ttl; // ms
+  private final LongSupplier clock; // ms
+  // In completion order, so the entries to evict are always the first ones
+  private final LinkedHashMap<String, CompletedSubmission> completedSubmissions = new LinkedHashMap<>();
+
+  public SubmissionStatusHistory() {
+    this(DEFAULT_MAX_SIZE, DEFAULT_TTL, System::currentTimeMillis);
+  }
+
+  SubmissionStatusHistory(int maxSize, long ttl, LongSupplier clock) {
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  public synchronized void add(String userID, SubmissionStatus submissionStatus) {
+    long now = clock.getAsLong();
+    completedSubmissions.remove(submissionStatus.getSubmissionID()); // re-inserted at the end
+    completedSubmissions.put(submissionStatus.getSubmissionID(), new CompletedSubmission(userID, submissionStatus,
+        now));
+    evict(now);
+  }
+
+  /**
+   * @return the final status of the submission, or null if it is not (or no longer) in the history
+   */
+  public synchronized SubmissionStatusDescriptor get(String submissionID) {
+    evict(clock.getAsLong());
+    CompletedSubmission completedSubmission = completedSubmissions.get(submissionID);
+    if (completedSubmission == null) {
+      return null;
+    }
+    return new SubmissionStatusDescriptor(submissionID, completedSubmission.userID, null,
+        completedSubmission.submissionStatus, null);
+  }
+
+  public synchronized int size() {
+    return completedSubmissions.size();
+  }
+
+  private void evict(long now) {
+    Iterator<Map.Entry<String, CompletedSubmission>> entries = completedSubmissions.entrySet().iterator();
+    while (entries.hasNext()) {
+      CompletedSubmission oldest = entries.next().getValue();
+      if (completedSubmissions.size() > maxSize || now - oldest.completionTime > ttl) {
+        entries.remove();
+      } else {
+        break;
+      }
+    }
+  }
+
+  private static class CompletedSubmission {
+    private final String userID;
+    private final SubmissionStatus submissionStatus;
+    private final long completionTime;
+
+    private CompletedSubmission(String userID, SubmissionStatus submissionStatus, long completionTime) {
+      this.userID = userID;
+      this.submissionStatus = submissionStatus;
+      this.completionTime = completionTime;
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package org.metadatacenter.submission.status;
+
+/**
+ * Notified by the {@link SubmissionStatusManager} each time the status of a submission changes.
+ */
+public interface SubmissionStatusListener {
+
+  void onStatusChanged(SubmissionStatusDescriptor submissionStatusDescriptor);
+}
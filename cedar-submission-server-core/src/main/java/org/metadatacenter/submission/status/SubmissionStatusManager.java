@@ -1,30 +1,68 @@
 package org.metadatacenter.submission.status;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.dropwizard.lifecycle.Managed;
 import org.metadatacenter.config.CedarConfig;
-import org.metadatacenter.submission.notifications.StatusNotifier;
+import org.metadatacenter.submission.concurrent.IoTaskExecutor;
+import org.metadatacenter.submission.lease.SubmissionLeaseListener;
+import org.metadatacenter.submission.lease.SubmissionLeaseManager;
+import org.metadatacenter.submission.lease.SubmissionTakeoverHandler;
+import org.metadatacenter.submission.notifications.NotificationDispatcher;
+import org.metadatacenter.submission.status.store.SubmissionStatusRecord;
+import org.metadatacenter.submission.status.store.SubmissionStatusStore;
+import org.metadatacenter.util.json.JsonMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-// TODO Use Redis queue
 // TODO Need to add insertion time in descriptor and clean old ones
 
-public class SubmissionStatusManager {
+/**
+ * Tracks the status of the submissions owned by this node. Submissions whose status task can be rebuilt by the task
+ * factory (i.e., whose tracking only needs their stored status) are also recorded in the in-flight registry of the
+ * lease manager, so that a surviving node resumes their tracking if this node dies. Other registry entries (e.g., NCBI
+ * submissions still uploading) are handed to the upload takeover handler.
+ */
+public class SubmissionStatusManager implements SubmissionLeaseListener, SubmissionTakeoverHandler, Managed {
   final static Logger logger = LoggerFactory.getLogger(SubmissionStatusManager.class);
   private static SubmissionStatusManager singleInstance;
+  // Status checks are blocking HTTP/FTP calls, so in virtual mode we can afford many more of them at once
+  private static final int STATUS_CHECK_PLATFORM_THREADS = 10;
+  private static final int STATUS_CHECK_VIRTUAL_CONCURRENCY = 1000;
+  // Time given to the status checks in progress to complete on shutdown
+  private static final long STOP_TIMEOUT = 10000;
+  // Marks the registry entries written by the status manager, as opposed to the ones of the upload pipelines
+  private static final String TRACKING_PAYLOAD_PREFIX = "status:";
   private final ExecutorService executor;
+  private final IoTaskExecutor statusCheckExecutor;
+  private final SubmissionStatusScheduler scheduler = new SubmissionStatusScheduler();
+  private final SubmissionStatusManagerRunnable pollingLoop;
   private final ConcurrentHashMap<String, SubmissionStatusDescriptor> submissions = new ConcurrentHashMap<>();
+  private final List<SubmissionStatusListener> statusListeners = new CopyOnWriteArrayList<>();
+  private final SubmissionStatusHistory history = new SubmissionStatusHistory();
   // TODO: this is not nice. Find another way of having these variable available to call the messaging server
   private CedarConfig cedarConfig;
+  private SubmissionLeaseManager leaseManager;
+  private SubmissionStatusStore statusStore;
+  private SubmissionStatusTaskFactory taskFactory;
+  private SubmissionTakeoverHandler uploadTakeoverHandler;
+  private boolean started;
 
   private SubmissionStatusManager() {
-    this.executor = Executors.newFixedThreadPool(10);
+    this.executor = Executors.newSingleThreadExecutor();
+    this.statusCheckExecutor = IoTaskExecutor.create("submission-status-check", STATUS_CHECK_PLATFORM_THREADS,
+        STATUS_CHECK_VIRTUAL_CONCURRENCY);
+    this.pollingLoop = new SubmissionStatusManagerRunnable(this, scheduler, statusCheckExecutor);
   }
 
   public static synchronized SubmissionStatusManager getInstance() {
@@ -39,18 +77,84 @@ public class SubmissionStatusManager {
     this.cedarConfig = cedarConfig;
   }
 
-  private void start() {
-    logger.info("Starting the submission status manager");
-    executor.submit(new SubmissionStatusManagerRunnable(this));
+  public void setLeaseManager(SubmissionLeaseManager leaseManager) {
+    this.leaseManager = leaseManager;
+    leaseManager.setLeaseListener(this);
   }
 
+  public void setStatusStore(SubmissionStatusStore statusStore) {
+    this.statusStore = statusStore;
+  }
+
+  /**
+   * Set the factory that rebuilds the status task of a stored submission, used to resume its tracking.
+   */
+  public void setTaskFactory(SubmissionStatusTaskFactory taskFactory) {
+    this.taskFactory = taskFactory;
+  }
+
+  /**
+   * Set the handler of the registry entries that were not written by the status manager.
+   */
+  public void setUploadTakeoverHandler(SubmissionTakeoverHandler uploadTakeoverHandler) {
+    this.uploadTakeoverHandler = uploadTakeoverHandler;
+  }
+
+  public void registerMetrics(MetricRegistry metrics) {
+    pollingLoop.registerMetrics(metrics);
+  }
+
+  public void addStatusListener(SubmissionStatusListener statusListener) {
+    statusListeners.add(statusListener);
+  }
+
+  /**
+   * Resume the tracking of the stored submissions that are not tracked by any node (e.g., after a restart). When
+   * several nodes share the store, the lease on a submission decides which node resumes it.
+   */
+  public void restoreSubmissions() {
+    if (statusStore == null || taskFactory == null) {
+      return;
+    }
+    for (SubmissionStatusRecord record : statusStore.getAll()) {
+      String submissionID = record.getSubmissionID();
+      if (submissions.containsKey(submissionID)) {
+        continue;
+      }
+      SubmissionStatusTask submissionStatusTask = taskFactory.createTask(record);
+      if (submissionStatusTask != null && (leaseManager == null || leaseManager.acquire(submissionID))) {
+        logger.info("Restoring the tracking of submission " + submissionID);
+        resumeSubmission(submissionStatusTask, record.getSubmissionStatus());
+      }
+    }
+  }
+
+  @Override
+  public synchronized void start() {
+    if (!started) {
+      logger.info("Starting the submission status manager");
+      executor.submit(pollingLoop);
+      started = true;
+    }
+  }
+
+  /**
+   * Stop polling and let the status checks in progress complete. The submissions still being tracked are not lost:
+   * their leases are handed off when the lease manager stops, and another node resumes tracking them.
+   */
+  @Override
   public void stop() {
     logger.info("Stopping the submission status manager");
-    executor.shutdown();
+    executor.shutdownNow(); // interrupts the polling loop
+    statusCheckExecutor.shutdown();
     try {
-      executor.awaitTermination(100, TimeUnit.MILLISECONDS);
+      if (!statusCheckExecutor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+        statusCheckExecutor.shutdownNow();
+      }
+      executor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
     } catch (InterruptedException e) {
       logger.warn("Submission status manager shutdown interrupted: " + e.getMessage());
+      Thread.currentThread().interrupt();
     }
   }
 
@@ -61,15 +165,88 @@ public class SubmissionStatusManager {
     SubmissionStatusDescriptor submissionStatusDescriptor = new SubmissionStatusDescriptor(submissionID,
         submissionStatusTask.getUserID(), submissionStatusTask.getStatusURL(), submissionStatus, submissionStatusTask);
 
+    if (leaseManager != null) {
+      leaseManager.acquire(submissionID);
+    }
     this.submissions.put(submissionID, submissionStatusDescriptor);
+    store(submissionStatusDescriptor);
+    registerInFlight(submissionStatusDescriptor);
+    scheduler.schedule(submissionID);
+    fireStatusChanged(submissionStatusDescriptor);
 
     notifyUser(submissionStatusDescriptor);
 
     return submissionID;
   }
 
-  public void updateSubmission(SubmissionStatus submissionStatus) {
+  /**
+   * Start tracking a submission taken over from another node. The user was already notified by the previous owner.
+   */
+  public void resumeSubmission(SubmissionStatusTask submissionStatusTask) {
+    String submissionID = submissionStatusTask.getSubmissionID();
+    SubmissionStatus submissionStatus = null;
+    if (statusStore != null) { // continue from the last known status, so that it is not notified again
+      SubmissionStatusRecord record = statusStore.get(submissionID);
+      if (record != null) {
+        submissionStatus = record.getSubmissionStatus();
+      }
+    }
+    if (submissionStatus == null) {
+      submissionStatus = new SubmissionStatus(submissionID, SubmissionState.SUBMITTED,
+          SubmissionStatusUtil.getShortStatusMessage(submissionID, SubmissionState.SUBMITTED));
+    }
+    resumeSubmission(submissionStatusTask, submissionStatus);
+  }
+
+  private void resumeSubmission(SubmissionStatusTask submissionStatusTask, SubmissionStatus submissionStatus) {
+    String submissionID = submissionStatusTask.getSubmissionID();
+    SubmissionStatusDescriptor submissionStatusDescriptor = new SubmissionStatusDescriptor(submissionID,
+        submissionStatusTask.getUserID(), submissionStatusTask.getStatusURL(), submissionStatus, submissionStatusTask);
+    this.submissions.put(submissionID, submissionStatusDescriptor);
+    store(submissionStatusDescriptor);
+    registerInFlight(submissionStatusDescriptor);
+    scheduler.schedule(submissionID);
+    fireStatusChanged(submissionStatusDescriptor);
+  }
+
+  /**
+   * Resume a submission whose owning node died. Status-only entries are rebuilt with the task factory; the others are
+   * handed to the upload takeover handler.
+   */
+  @Override
+  public void takeOver(String submissionID, String payload) {
+    if (!payload.startsWith(TRACKING_PAYLOAD_PREFIX)) {
+      if (uploadTakeoverHandler != null) {
+        uploadTakeoverHandler.takeOver(submissionID, payload);
+      } else {
+        leaseManager.release(submissionID);
+      }
+      return;
+    }
+    SubmissionStatusTask submissionStatusTask = null;
+    try {
+      SubmissionStatusRecord record = JsonMapper.MAPPER.readValue(payload.substring(TRACKING_PAYLOAD_PREFIX.length()),
+          SubmissionStatusRecord.class);
+      if (taskFactory != null) {
+        submissionStatusTask = taskFactory.createTask(record);
+      }
+    } catch (IOException e) {
+      logger.error("Unable to read the registry entry of submission " + submissionID, e);
+    }
+    if (submissionStatusTask == null) {
+      leaseManager.release(submissionID);
+    } else if (!submissions.containsKey(submissionID)) {
+      logger.info("Resuming status tracking of submission " + submissionID);
+      resumeSubmission(submissionStatusTask);
+    }
+  }
+
+  /**
+   * @return true if the state or the message of the submission status changed
+   */
+  public boolean updateSubmission(SubmissionStatus submissionStatus) {
     String submissionID = submissionStatus.getSubmissionID();
+    boolean statusChanged = false;
 
     if (!this.submissions.containsKey(submissionID)) {
       logger.warn("Attempt to update unknown submission " + submissionID);
@@ -84,6 +261,8 @@ public class SubmissionStatusManager {
       // 2. The new state is the same, but the messages are different (except for the STARTED state)
       SubmissionStatus currentStatus = currentSubmissionStatusDescriptor.getSubmissionStatus();
       SubmissionStatus newStatus = newSubmissionStatusDescriptor.getSubmissionStatus();
+      statusChanged = currentStatus.getSubmissionState() != newStatus.getSubmissionState() ||
+          !currentStatus.getStatusMessage().equals(newStatus.getStatusMessage());
       if ((currentStatus.getSubmissionState() != newStatus.getSubmissionState()) ||
           (!currentStatus.getStatusMessage().equals(newStatus.getStatusMessage()) &&
               !currentStatus.getSubmissionState().equals(SubmissionState.SUBMITTED))) {
@@ -93,13 +272,19 @@ public class SubmissionStatusManager {
       logger.info("Submission status: " + newStatus.getSummary());
 
       this.submissions.put(submissionID, newSubmissionStatusDescriptor);
+      if (statusChanged) {
+        store(newSubmissionStatusDescriptor);
+        fireStatusChanged(newSubmissionStatusDescriptor);
+      }
 
       if (submissionStatus.getSubmissionState() == SubmissionState.SUCCEEDED
           || submissionStatus.getSubmissionState() == SubmissionState.REJECTED
           || submissionStatus.getSubmissionState() == SubmissionState.ERROR) {
+        history.add(currentSubmissionStatusDescriptor.getUserID(), submissionStatus);
         removeSubmission(submissionID);
       }
     }
+    return statusChanged;
   }
 
   public void removeSubmission(String submissionID) {
@@ -116,6 +301,41 @@ public class SubmissionStatusManager {
 
       this.submissions.remove(submissionID);
     }
+    scheduler.cancel(submissionID);
+    if (statusStore != null) {
+      statusStore.remove(submissionID);
+    }
+    if (leaseManager != null) {
+      leaseManager.release(submissionID);
+    }
+  }
+
+  @Override
+  public void onLeaseLost(String submissionID) {
+    // Another node owns the submission now, so we stop tracking it without touching its lease
+    scheduler.cancel(submissionID);
+    if (this.submissions.remove(submissionID) != null) {
+      logger.info("Stopped tracking submission " + submissionID + ", now owned by another node");
+    }
+  }
+
+  /**
+   * @return the submission if it is tracked, its final status if it completed recently, or its last stored status if
+   * it is tracked by another node (without its status task); null otherwise
+   */
+  public SubmissionStatusDescriptor getSubmission(String submissionID) {
+    SubmissionStatusDescriptor submissionStatusDescriptor = submissions.get(submissionID);
+    if (submissionStatusDescriptor == null) {
+      submissionStatusDescriptor = history.get(submissionID);
+    }
+    if (submissionStatusDescriptor == null && statusStore != null) {
+      SubmissionStatusRecord record = statusStore.get(submissionID);
+      if (record != null) {
+        submissionStatusDescriptor = new SubmissionStatusDescriptor(submissionID, record.getUserID(),
+            record.getStatusURL(), record.getSubmissionStatus(), null);
+      }
+    }
+    return submissionStatusDescriptor;
   }
 
   public Map<String, SubmissionStatusDescriptor> getCurrentSubmissions() {
@@ -124,11 +344,47 @@ public class SubmissionStatusManager {
     }
   }
 
+  /**
+   * Record the submission in the in-flight registry if a peer can resume its tracking from its status alone.
+   */
+  private void registerInFlight(SubmissionStatusDescriptor submissionStatusDescriptor) {
+    if (leaseManager == null || taskFactory == null) {
+      return;
+    }
+    SubmissionStatusRecord record = new SubmissionStatusRecord(submissionStatusDescriptor);
+    if (taskFactory.createTask(record) == null) { // resumed by its upload pipeline
+      return;
+    }
+    try {
+      leaseManager.register(record.getSubmissionID(),
+          TRACKING_PAYLOAD_PREFIX + JsonMapper.MAPPER.writeValueAsString(record));
+    } catch (JsonProcessingException e) {
+      logger.error("Error while registering in-flight submission " + record.getSubmissionID(), e);
+    }
+  }
+
+  private void store(SubmissionStatusDescriptor submissionStatusDescriptor) {
+    if (statusStore != null) {
+      statusStore.put(new SubmissionStatusRecord(submissionStatusDescriptor));
+    }
+  }
+
+  private void fireStatusChanged(SubmissionStatusDescriptor submissionStatusDescriptor) {
+    for (SubmissionStatusListener statusListener : statusListeners) {
+      try {
+        statusListener.onStatusChanged(submissionStatusDescriptor);
+      } catch (Exception e) {
+        logger.error("Error while notifying a status listener for submission "
+            + submissionStatusDescriptor.getSubmissionID() + ": " + e.getMessage());
+      }
+    }
+  }
+
   private void notifyUser(SubmissionStatusDescriptor submissionStatusDescriptor) {
     logger.info("Notifying user for submission " + submissionStatusDescriptor.getSubmissionID() + "; status = "
         + submissionStatusDescriptor.getSubmissionStatus().getSubmissionState() + ", message = "
         + submissionStatusDescriptor.getSubmissionStatus().getStatusMessage());
 
-    StatusNotifier.getInstance().sendMessage(submissionStatusDescriptor);
+    NotificationDispatcher.getInstance().dispatch(submissionStatusDescriptor);
   }
 }
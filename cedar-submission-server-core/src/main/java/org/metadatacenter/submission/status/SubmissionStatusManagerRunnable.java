@@ -1,69 +1,168 @@
 package org.metadatacenter.submission.status;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SubmissionStatusManagerRunnable implements Runnable {
   final static Logger logger = LoggerFactory.getLogger(SubmissionStatusManagerRunnable.class);
 
-  private static final int NUMBER_OF_THREADS = 10;
-  private static final int CHECK_INTERVAL = 5000;
-
   private final SubmissionStatusManager submissionStatusManager;
+  private final SubmissionStatusScheduler scheduler;
+  private final ExecutorService statusCheckExecutor;
+  private final ScheduledExecutorService timer; // check deadlines and rate-limited starts
+  private final SubmissionStatusThrottle throttle;
+  // Latest check started for each submission. Only its result is applied
+  private final Map<String, StatusCheck> statusChecks = new ConcurrentHashMap<>();
+  private final Map<SubmissionType, Meter> timeoutMeters = new EnumMap<>(SubmissionType.class);
 
-  public SubmissionStatusManagerRunnable(SubmissionStatusManager submissionStatusManager) {
+  public SubmissionStatusManagerRunnable(SubmissionStatusManager submissionStatusManager,
+                                         SubmissionStatusScheduler scheduler, ExecutorService statusCheckExecutor) {
     this.submissionStatusManager = submissionStatusManager;
+    this.scheduler = scheduler;
+    this.statusCheckExecutor = statusCheckExecutor;
+    this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "submission-status-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.throttle = new SubmissionStatusThrottle(timer);
+    for (SubmissionType submissionType : SubmissionType.values()) {
+      timeoutMeters.put(submissionType, new Meter());
+    }
+  }
+
+  public void registerMetrics(MetricRegistry metrics) {
+    for (Map.Entry<SubmissionType, Meter> timeoutMeter : timeoutMeters.entrySet()) {
+      metrics.register(MetricRegistry.name(SubmissionStatusManager.class, timeoutMeter.getKey().name().toLowerCase(),
+          "status-check-timeouts"), timeoutMeter.getValue());
+    }
+    throttle.registerMetrics(metrics);
   }
 
   @Override
   public void run() {
-    ExecutorService threadPool = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
-    Map<String, Future<SubmissionStatus>> futures = new HashMap<>();
-    CompletionService<SubmissionStatus> pool = new ExecutorCompletionService<>(threadPool);
-
-    while (true) {
-      try {
-        Map<String, SubmissionStatusDescriptor> currentSubmissions = submissionStatusManager.getCurrentSubmissions();
-
-        if (!currentSubmissions.isEmpty()) {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        // Wait for the next submission due for a check
+        SubmissionStatusScheduler.ScheduledCheck check = scheduler.take();
+        SubmissionStatusDescriptor submissionStatusDescriptor =
+            submissionStatusManager.getCurrentSubmissions().get(check.getSubmissionID());
+        if (submissionStatusDescriptor != null) {
+          checkStatus(submissionStatusDescriptor.getSubmissionStatusTask(), check);
+        }
+      }
+    } catch (InterruptedException e) {
+      logger.info("Submission status polling interrupted");
+    } catch (RejectedExecutionException e) {
+      logger.info("Submission status polling stopped");
+    } finally {
+      timer.shutdownNow();
+    }
+  }
 
-          for (SubmissionStatusDescriptor submissionStatusDescriptor : currentSubmissions.values()) {
-            SubmissionStatusTask submissionStatusTask = submissionStatusDescriptor.getSubmissionStatusTask();
-            Future<SubmissionStatus> submissionStatusFuture = pool.submit(submissionStatusTask);
+  /**
+   * Start a status check, once the limits of its upstream allow it (see {@link SubmissionStatusThrottle}). No thread
+   * waits for its result: the submission is updated and rescheduled when the check completes. Each check has its own
+   * deadline, so a slow check only delays the submission it is for: when the deadline passes, the check is cancelled,
+   * which gives back its thread and its concurrency slot, and the next check of that submission is scheduled.
+   */
+  private void checkStatus(SubmissionStatusTask submissionStatusTask, SubmissionStatusScheduler.ScheduledCheck check) {
+    String submissionID = submissionStatusTask.getSubmissionID();
+    SubmissionType submissionType = submissionStatusTask.getSubmissionType();
+    StatusCheck statusCheck = new StatusCheck();
+    StatusCheck previousCheck = statusChecks.put(submissionID, statusCheck);
+    if (previousCheck != null) { // superseded; its result would be older than the one on its way
+      previousCheck.cancel();
+    }
 
-            futures.put(submissionStatusDescriptor.getSubmissionID(), submissionStatusFuture);
+    throttle.submit(submissionType, () -> {
+      if (statusCheck.result.isDone()) { // cancelled while waiting for its turn
+        return statusCheck.result;
+      }
+      timer.schedule(() -> {
+        if (!statusCheck.result.isDone() && statusCheck.timedOut.compareAndSet(false, true)) {
+          timeoutMeters.get(submissionType).mark();
+          throttle.recordFailure(submissionType);
+          logger.warn("Status call for submission " + submissionID + " did not complete within "
+              + submissionStatusTask.getTimeout() + " ms");
+          if (submissionStatusManager.getCurrentSubmissions().containsKey(submissionID)) {
+            scheduler.reschedule(submissionID, check.getInterval(), false, throttle.getLoadFactor(submissionType));
           }
+          statusCheck.cancelCall();
+        }
+      }, submissionStatusTask.getTimeout(), TimeUnit.MILLISECONDS);
+      statusCheck.call = submissionStatusTask.callAsync(statusCheckExecutor);
+      return statusCheck.call;
+    }).whenComplete((submissionStatus, e) -> {
+      if (e != null) {
+        statusCheck.result.completeExceptionally(e);
+      } else {
+        statusCheck.result.complete(submissionStatus);
+      }
+    });
 
-          for (int i = 0; i < currentSubmissions.size(); i++) {
-            SubmissionStatus submissionStatus = pool.take().get(1000, TimeUnit.MILLISECONDS);
-            String submissionID = submissionStatus.getSubmissionID();
-
-            futures.remove(submissionID);
-            this.submissionStatusManager.updateSubmission(submissionStatus);
-          }
+    statusCheck.result.whenCompleteAsync((submissionStatus, e) -> {
+      if (!statusChecks.remove(submissionID, statusCheck)) {
+        return; // a newer check has started
+      }
+      boolean statusChanged = false;
+      if (e != null) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (!(cause instanceof CancellationException)) {
+          throttle.recordFailure(submissionType);
+          logger.error("Status call for submission " + submissionID + " failed: " + cause.getMessage());
         }
-        Thread.sleep(CHECK_INTERVAL);
-      } catch (CancellationException e) {
-        logger.error("Cancellation exception : " + e.getMessage());
-      } catch (InterruptedException e) {
-        logger.error("Interrupted exception : " + e.getMessage());
-      } catch (ExecutionException e) {
-        logger.error("Execution exception : " + e.getMessage());
-      } catch (TimeoutException e) {
-        logger.error("Timeout exception : " + e.getMessage());
-      } finally {
-        for (String submissionID : futures.keySet()) {
-          Future<SubmissionStatus> future = futures.get(submissionID);
-          future.cancel(true); // Cancel tasks that did not complete in time
-          logger.error("Status call for submission " + submissionID + " did not complete; cancelling");
+      } else {
+        throttle.recordSuccess(submissionType);
+        try {
+          statusChanged = submissionStatusManager.updateSubmission(submissionStatus);
+        } catch (Exception updateException) {
+          logger.error("Status update for submission " + submissionID + " failed: " + updateException.getMessage());
         }
-        futures.clear();
+      }
+      // Terminal states stop the tracking, so only submissions that are still tracked get a next check. A late check
+      // already got its next one at the deadline, unless its result brings the submission back to frequent checks
+      if (submissionStatusManager.getCurrentSubmissions().containsKey(submissionID) &&
+          (!statusCheck.timedOut.get() || statusChanged)) {
+        scheduler.reschedule(submissionID, check.getInterval(), statusChanged, throttle.getLoadFactor(submissionType));
+      }
+    }, statusCheckExecutor);
+  }
+
+  private static class StatusCheck {
+    private final CompletableFuture<SubmissionStatus> result = new CompletableFuture<>();
+    private final AtomicBoolean timedOut = new AtomicBoolean();
+    private volatile CompletableFuture<SubmissionStatus> call; // null until the check has started
+
+    private void cancel() {
+      result.cancel(true);
+      cancelCall();
+    }
+
+    /**
+     * Stop the call itself: tasks cancel (and interrupt) their blocking call when the future they returned is
+     * cancelled.
+     */
+    private void cancelCall() {
+      CompletableFuture<SubmissionStatus> startedCall = call;
+      if (startedCall != null) {
+        startedCall.cancel(true);
       }
     }
   }
 }
-
@@ -0,0 +1,104 @@
+package org.metadatacenter.submission.status;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the status of each tracked submission is checked next. A submission is checked often right after it
+ * is submitted, and then less and less often (exponential backoff) while its status does not change. Any status change
+ * brings it back to the initial interval. This way, the polling load depends on how often statuses change rather than
+ * on the number of tracked submissions (NCBI reports, for example, take hours).
+ */
+public class SubmissionStatusScheduler {
+
+  public static long MIN_CHECK_INTERVAL = 5000; // ms
+  public static long MAX_CHECK_INTERVAL = 30 * 60 * 1000; // ms
+  public static int BACKOFF_FACTOR = 2;
+
+  private final DelayQueue<ScheduledCheck> queue = new DelayQueue<>();
+  // Latest check scheduled for each submission. Checks that are no longer here are stale and are skipped
+  private final Map<String, ScheduledCheck> scheduledChecks = new ConcurrentHashMap<>();
+
+  /**
+   * Schedule the first check of a submission, replacing any check already scheduled for it.
+   */
+  public void schedule(String submissionID) {
+    schedule(new ScheduledCheck(submissionID, MIN_CHECK_INTERVAL, MIN_CHECK_INTERVAL));
+  }
+
+  /**
+   * Schedule the next check of a submission after a check completed.
+   *
+   * @param statusChanged whether the last check found a new status
+   */
+  public void reschedule(String submissionID, long lastInterval, boolean statusChanged) {
+    reschedule(submissionID, lastInterval, statusChanged, 1);
+  }
+
+  /**
+   * Schedule the next check of a submission after a check completed, further apart when its upstream is overloaded.
+   *
+   * @param loadFactor factor (>= 1) applied to the interval before the next check, up to MAX_CHECK_INTERVAL. The
+   *                   backoff continues from the unstretched interval
+   */
+  public void reschedule(String submissionID, long lastInterval, boolean statusChanged, double loadFactor) {
+    long interval = statusChanged ? MIN_CHECK_INTERVAL : Math.min(lastInterval * BACKOFF_FACTOR, MAX_CHECK_INTERVAL);
+    long delay = Math.max(interval, Math.min((long) (interval * loadFactor), MAX_CHECK_INTERVAL));
+    schedule(new ScheduledCheck(submissionID, interval, delay));
+  }
+
+  public void cancel(String submissionID) {
+    scheduledChecks.remove(submissionID);
+  }
+
+  /**
+   * Wait for the next submission due for a check.
+   */
+  public ScheduledCheck take() throws InterruptedException {
+    while (true) {
+      ScheduledCheck check = queue.take();
+      if (scheduledChecks.remove(check.getSubmissionID(), check)) {
+        return check;
+      }
+    }
+  }
+
+  private void schedule(ScheduledCheck check) {
+    scheduledChecks.put(check.getSubmissionID(), check);
+    queue.put(check);
+  }
+
+  public static class ScheduledCheck implements Delayed {
+
+    private final String submissionID;
+    private final long interval;
+    private final long dueTime;
+
+    private ScheduledCheck(String submissionID, long interval, long delay) {
+      this.submissionID = submissionID;
+      this.interval = interval;
+      this.dueTime = System.currentTimeMillis() + delay;
+    }
+
+    public String getSubmissionID() {
+      return submissionID;
+    }
+
+    public long getInterval() {
+      return interval;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(dueTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+    }
+  }
+}
@@ -1,11 +1,20 @@
 package org.metadatacenter.submission.status;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
- * Subclasses must specialize this call to implement a submission status call.
+ * Subclasses must specialize this call to implement a submission status call. Subclasses whose upstream can be called
+ * without blocking a thread (or that cap their concurrency) should also override {@link #callAsync(Executor)}.
  */
 public abstract class SubmissionStatusTask implements Callable<SubmissionStatus> {
+
+  public static long DEFAULT_TIMEOUT = 30000; // ms
+
   private final String submissionID;
   private final SubmissionType submissionType;
   private final String userID;
@@ -39,5 +48,50 @@ public abstract class SubmissionStatusTask implements Callable<SubmissionStatus>
     return callSubmissionStatusEndpoint();
   }
 
+  /**
+   * @return the time (in ms) given to a status check before it is considered late
+   */
+  public long getTimeout() {
+    return DEFAULT_TIMEOUT;
+  }
+
+  /**
+   * Check the status without blocking the caller. By default, the blocking call runs on the given executor, and
+   * cancelling the returned future interrupts it.
+   */
+  public CompletableFuture<SubmissionStatus> callAsync(Executor executor) {
+    return callAsync(executor, this);
+  }
+
+  /**
+   * Run a blocking call on the given executor. Cancelling {@link CompletableFuture} never interrupts the thread that
+   * completes it, so the call runs as a {@link FutureTask}, which is cancelled (with an interrupt) when the returned
+   * future is. The thread is then given back as soon as the call reacts to the interrupt.
+   */
+  protected static CompletableFuture<SubmissionStatus> callAsync(Executor executor, Callable<SubmissionStatus> call) {
+    CompletableFuture<SubmissionStatus> result = new CompletableFuture<>();
+    FutureTask<SubmissionStatus> futureTask = new FutureTask<SubmissionStatus>(call) {
+      @Override
+      protected void done() {
+        try {
+          result.complete(get());
+        } catch (CancellationException e) {
+          result.cancel(false);
+        } catch (ExecutionException e) {
+          result.completeExceptionally(e.getCause());
+        } catch (InterruptedException e) { // not reached: the task is done
+          result.completeExceptionally(e);
+        }
+      }
+    };
+    result.whenComplete((submissionStatus, e) -> {
+      if (result.isCancelled()) {
+        futureTask.cancel(true);
+      }
+    });
+    executor.execute(futureTask);
+    return result;
+  }
+
   abstract protected SubmissionStatus callSubmissionStatusEndpoint() throws Exception;
 }
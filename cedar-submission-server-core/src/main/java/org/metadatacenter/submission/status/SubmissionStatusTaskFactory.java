@@ -0,0 +1,14 @@
+package org.metadatacenter.submission.status;
+
+import org.metadatacenter.submission.status.store.SubmissionStatusRecord;
+
+/**
+ * Rebuilds the status task of a stored submission, so that its tracking can be resumed after a restart.
+ */
+public interface SubmissionStatusTaskFactory {
+
+  /**
+   * @return the task, or null if submissions of this type are resumed by other means
+   */
+  SubmissionStatusTask createTask(SubmissionStatusRecord record);
+}
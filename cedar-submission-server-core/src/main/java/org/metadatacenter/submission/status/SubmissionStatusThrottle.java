@@ -0,0 +1,135 @@
+package org.metadatacenter.submission.status;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.metadatacenter.submission.concurrent.AsyncConcurrencyLimiter;
+import org.metadatacenter.submission.concurrent.TokenBucket;
+import org.metadatacenter.submission.http.HttpUpstream;
+import org.metadatacenter.submission.ncbi.NcbiConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Protects the upstream services (NCBI FTP server, ImmPort API) from the status checks. For each upstream, the checks
+ * are limited in rate (token bucket) and in number in flight, whatever the number of tracked submissions. When an
+ * upstream fails or times out, its load factor goes up, which stretches the intervals between the checks of its
+ * submissions; it goes back down as checks succeed again.
+ */
+public class SubmissionStatusThrottle {
+
+  final static Logger logger = LoggerFactory.getLogger(SubmissionStatusThrottle.class);
+
+  public static double NCBI_CHECKS_PER_SECOND = 10;
+  public static int NCBI_CHECKS_BURST = 50;
+  // NCBI checks share FTP sessions, so many can be in flight at once
+  public static int NCBI_MAX_CONCURRENT_CHECKS = NcbiConstants.NCBI_STATUS_BATCH_MAX_SIZE;
+  public static double IMMPORT_CHECKS_PER_SECOND = 5;
+  public static int IMMPORT_CHECKS_BURST = 20;
+  // No more calls in flight than pooled connections to ImmPort
+  public static int IMMPORT_MAX_CONCURRENT_CHECKS = HttpUpstream.IMMPORT.getMaxConnectionsPerRoute();
+
+  // Each failure doubles the load factor and each success takes 10% off, so intervals are only stretched while more
+  // than about one check in eight fails
+  public static double MAX_LOAD_FACTOR = 8;
+  public static double FAILURE_LOAD_INCREASE = 2;
+  public static double SUCCESS_LOAD_DECREASE = 0.9;
+
+  private final ScheduledExecutorService timer;
+  private final Map<SubmissionType, Upstream> upstreams = new EnumMap<>(SubmissionType.class);
+
+  public SubmissionStatusThrottle(ScheduledExecutorService timer) {
+    this.timer = timer;
+    upstreams.put(SubmissionType.NCBI, new Upstream(NCBI_CHECKS_PER_SECOND, NCBI_CHECKS_BURST,
+        NCBI_MAX_CONCURRENT_CHECKS));
+    upstreams.put(SubmissionType.IMMPORT, new Upstream(IMMPORT_CHECKS_PER_SECOND, IMMPORT_CHECKS_BURST,
+        IMMPORT_MAX_CONCURRENT_CHECKS));
+  }
+
+  /**
+   * Start a status check once the rate and concurrency limits of its upstream allow it. No thread waits meanwhile.
+   */
+  public CompletableFuture<SubmissionStatus> submit(SubmissionType submissionType,
+                                                    Supplier<CompletableFuture<SubmissionStatus>> statusCheck) {
+    Upstream upstream = upstreams.get(submissionType);
+    long wait = upstream.rateLimiter.reserve();
+    if (wait == 0) {
+      return upstream.concurrencyLimiter.submit(statusCheck);
+    }
+    CompletableFuture<SubmissionStatus> result = new CompletableFuture<>();
+    try {
+      timer.schedule(() -> upstream.concurrencyLimiter.submit(statusCheck).whenComplete((submissionStatus, e) -> {
+        if (e != null) {
+          result.completeExceptionally(e);
+        } else {
+          result.complete(submissionStatus);
+        }
+      }), wait, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  public void recordSuccess(SubmissionType submissionType) {
+    upstreams.get(submissionType).updateLoadFactor(SUCCESS_LOAD_DECREASE, submissionType);
+  }
+
+  /**
+   * Record a failed or timed out check.
+   */
+  public void recordFailure(SubmissionType submissionType) {
+    upstreams.get(submissionType).updateLoadFactor(FAILURE_LOAD_INCREASE, submissionType);
+  }
+
+  /**
+   * @return the factor (1 when the upstream is healthy) to apply to the check intervals of the upstream
+   */
+  public double getLoadFactor(SubmissionType submissionType) {
+    return upstreams.get(submissionType).getLoadFactor();
+  }
+
+  public void registerMetrics(MetricRegistry metrics) {
+    for (Map.Entry<SubmissionType, Upstream> entry : upstreams.entrySet()) {
+      String prefix = MetricRegistry.name(SubmissionStatusManager.class, entry.getKey().name().toLowerCase());
+      Upstream upstream = entry.getValue();
+      metrics.register(MetricRegistry.name(prefix, "load-factor"), (Gauge<Double>) upstream::getLoadFactor);
+      metrics.register(MetricRegistry.name(prefix, "checks-running"),
+          (Gauge<Integer>) upstream.concurrencyLimiter::getRunning);
+      metrics.register(MetricRegistry.name(prefix, "checks-pending"),
+          (Gauge<Integer>) upstream.concurrencyLimiter::getPending);
+    }
+  }
+
+  private static class Upstream {
+    private final TokenBucket rateLimiter;
+    private final AsyncConcurrencyLimiter concurrencyLimiter;
+    private double loadFactor = 1; // guarded by 'this'
+
+    private Upstream(double checksPerSecond, int burst, int maxConcurrentChecks) {
+      this.rateLimiter = new TokenBucket(checksPerSecond, burst);
+      this.concurrencyLimiter = new AsyncConcurrencyLimiter(maxConcurrentChecks);
+    }
+
+    private synchronized double getLoadFactor() {
+      return loadFactor;
+    }
+
+    private synchronized void updateLoadFactor(double change, SubmissionType submissionType) {
+      double previousLoadFactor = loadFactor;
+      loadFactor = Math.max(1, Math.min(MAX_LOAD_FACTOR, loadFactor * change));
+      if (previousLoadFactor == 1 && loadFactor > 1) {
+        logger.warn(submissionType.getValue() + " status checks are failing. Stretching the check intervals");
+      } else if (previousLoadFactor > 1 && loadFactor == 1) {
+        logger.info(submissionType.getValue() + " status checks are back to normal intervals");
+      }
+    }
+  }
+}
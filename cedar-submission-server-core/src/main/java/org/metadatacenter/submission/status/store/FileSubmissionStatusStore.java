@@ -0,0 +1,77 @@
+package org.metadatacenter.submission.status.store;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.metadatacenter.util.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Embedded store for single-node deployments. The records are kept in memory and the whole set is written to a local
+ * file after each batch of changes (atomically, through a temporary file), so that it can be read back on restart.
+ */
+public class FileSubmissionStatusStore implements SubmissionStatusStore {
+
+  final static Logger logger = LoggerFactory.getLogger(FileSubmissionStatusStore.class);
+
+  private final File file;
+  private final Map<String, SubmissionStatusRecord> records = new ConcurrentHashMap<>();
+
+  public FileSubmissionStatusStore(File file) {
+    this.file = file;
+    if (file.exists()) {
+      try {
+        List<SubmissionStatusRecord> storedRecords =
+            JsonMapper.MAPPER.readValue(file, new TypeReference<List<SubmissionStatusRecord>>() {
+            });
+        for (SubmissionStatusRecord record : storedRecords) {
+          records.put(record.getSubmissionID(), record);
+        }
+        logger.info("Loaded " + records.size() + " submission status record(s) from " + file);
+      } catch (IOException e) {
+        logger.error("Unable to read the submission status file " + file + ": " + e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public synchronized void write(Map<String, SubmissionStatusRecord> changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    for (Map.Entry<String, SubmissionStatusRecord> change : changes.entrySet()) {
+      if (change.getValue() == null) {
+        records.remove(change.getKey());
+      } else {
+        records.put(change.getKey(), change.getValue());
+      }
+    }
+    try {
+      File tmpFile = new File(file.getPath() + ".tmp");
+      JsonMapper.MAPPER.writeValue(tmpFile, new ArrayList<>(records.values()));
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.error("Unable to write the submission status file " + file + ": " + e.getMessage());
+    }
+  }
+
+  @Override
+  public SubmissionStatusRecord get(String submissionID) {
+    return records.get(submissionID);
+  }
+
+  @Override
+  public Collection<SubmissionStatusRecord> getAll() {
+    return new ArrayList<>(records.values());
+  }
+}
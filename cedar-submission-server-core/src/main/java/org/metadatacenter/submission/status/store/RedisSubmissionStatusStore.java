@@ -0,0 +1,87 @@
+package org.metadatacenter.submission.status.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.metadatacenter.submission.redis.SubmissionRedisClient;
+import org.metadatacenter.util.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the submission statuses in a Redis hash (one field per submission), shared by all the server nodes.
+ */
+public class RedisSubmissionStatusStore implements SubmissionStatusStore {
+
+  final static Logger logger = LoggerFactory.getLogger(RedisSubmissionStatusStore.class);
+
+  private final SubmissionRedisClient redisClient;
+  private final String hashKey;
+
+  public RedisSubmissionStatusStore(SubmissionRedisClient redisClient, String keyPrefix) {
+    this.redisClient = redisClient;
+    this.hashKey = keyPrefix + ":status";
+  }
+
+  @Override
+  public void write(Map<String, SubmissionStatusRecord> changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    // All the changes go in a single round trip
+    redisClient.pipelined(pipeline -> {
+      for (Map.Entry<String, SubmissionStatusRecord> change : changes.entrySet()) {
+        if (change.getValue() == null) {
+          pipeline.hdel(hashKey, change.getKey());
+        } else {
+          String json = toJson(change.getValue());
+          if (json != null) {
+            pipeline.hset(hashKey, change.getKey(), json);
+          }
+        }
+      }
+    });
+  }
+
+  @Override
+  public SubmissionStatusRecord get(String submissionID) {
+    return fromJson(redisClient.execute(jedis -> jedis.hget(hashKey, submissionID)));
+  }
+
+  @Override
+  public Collection<SubmissionStatusRecord> getAll() {
+    List<SubmissionStatusRecord> records = new ArrayList<>();
+    for (String json : redisClient.execute(jedis -> jedis.hvals(hashKey))) {
+      SubmissionStatusRecord record = fromJson(json);
+      if (record != null) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  private static String toJson(SubmissionStatusRecord record) {
+    try {
+      return JsonMapper.MAPPER.writeValueAsString(record);
+    } catch (JsonProcessingException e) {
+      logger.error("Error while serializing the status of submission " + record.getSubmissionID(), e);
+      return null;
+    }
+  }
+
+  private static SubmissionStatusRecord fromJson(String json) {
+    if (json == null) {
+      return null;
+    }
+    try {
+      return JsonMapper.MAPPER.readValue(json, SubmissionStatusRecord.class);
+    } catch (IOException e) {
+      logger.error("Error while reading a submission status record", e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package org.metadatacenter.submission.status.store;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.metadatacenter.submission.status.SubmissionState;
+import org.metadatacenter.submission.status.SubmissionStatus;
+import org.metadatacenter.submission.status.SubmissionStatusDescriptor;
+import org.metadatacenter.submission.status.SubmissionType;
+
+/**
+ * Persisted form of a {@link SubmissionStatusDescriptor}. The status task is not stored; it is rebuilt from these
+ * fields when tracking is resumed. Property names are kept short because there is one record per tracked submission.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SubmissionStatusRecord {
+
+  @JsonProperty("i")
+  private String submissionID;
+  @JsonProperty("u")
+  private String userID;
+  @JsonProperty("l")
+  private String statusURL;
+  @JsonProperty("t")
+  private SubmissionType submissionType;
+  @JsonProperty("s")
+  private SubmissionState submissionState;
+  @JsonProperty("m")
+  private String statusMessage;
+  @JsonProperty("ts")
+  private long updatedAt;
+
+  public SubmissionStatusRecord() {
+  }
+
+  public SubmissionStatusRecord(SubmissionStatusDescriptor descriptor) {
+    this.submissionID = descriptor.getSubmissionID();
+    this.userID = descriptor.getUserID();
+    this.statusURL = descriptor.getStatusURL();
+    this.submissionType = descriptor.getSubmissionStatusTask().getSubmissionType();
+    this.submissionState = descriptor.getSubmissionStatus().getSubmissionState();
+    this.statusMessage = descriptor.getSubmissionStatus().getStatusMessage();
+    this.updatedAt = System.currentTimeMillis();
+  }
+
+  public String getSubmissionID() {
+    return submissionID;
+  }
+
+  public void setSubmissionID(String submissionID) {
+    this.submissionID = submissionID;
+  }
+
+  public String getUserID() {
+    return userID;
+  }
+
+  public void setUserID(String userID) {
+    this.userID = userID;
+  }
+
+  public String getStatusURL() {
+    return statusURL;
+  }
+
+  public void setStatusURL(String statusURL) {
+    this.statusURL = statusURL;
+  }
+
+  public SubmissionType getSubmissionType() {
+    return submissionType;
+  }
+
+  public void setSubmissionType(SubmissionType submissionType) {
+    this.submissionType = submissionType;
+  }
+
+  public SubmissionState getSubmissionState() {
+    return submissionState;
+  }
+
+  public void setSubmissionState(SubmissionState submissionState) {
+    this.submissionState = submissionState;
+  }
+
+  public String getStatusMessage() {
+    return statusMessage;
+  }
+
+  public void setStatusMessage(String statusMessage) {
+    this.statusMessage = statusMessage;
+  }
+
+  public long getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(long updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+  @JsonIgnore
+  public SubmissionStatus getSubmissionStatus() {
+    return new SubmissionStatus(submissionID, submissionState, statusMessage);
+  }
+}
@@ -0,0 +1,29 @@
+package org.metadatacenter.submission.status.store;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Persistent storage of the status of the submissions being tracked, so that tracking survives restarts and is
+ * visible to all the server nodes.
+ */
+public interface SubmissionStatusStore {
+
+  /**
+   * Apply a batch of changes. A null record removes the submission from the store.
+   */
+  void write(Map<String, SubmissionStatusRecord> changes);
+
+  SubmissionStatusRecord get(String submissionID);
+
+  Collection<SubmissionStatusRecord> getAll();
+
+  default void put(SubmissionStatusRecord record) {
+    write(Collections.singletonMap(record.getSubmissionID(), record));
+  }
+
+  default void remove(String submissionID) {
+    write(Collections.singletonMap(submissionID, null));
+  }
+}
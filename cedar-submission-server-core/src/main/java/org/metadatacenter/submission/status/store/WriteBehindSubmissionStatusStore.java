@@ -0,0 +1,131 @@
+package org.metadatacenter.submission.status.store;
+
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers the changes made to another store and writes them in batches, so that status updates coming from thousands
+ * of polls do not each cost a synchronous write. Successive changes to the same submission are coalesced, and reads
+ * see the buffered changes. The buffer is flushed every FLUSH_INTERVAL ms, when it reaches MAX_PENDING_CHANGES, and
+ * on stop.
+ */
+public class WriteBehindSubmissionStatusStore implements SubmissionStatusStore, Managed {
+
+  final static Logger logger = LoggerFactory.getLogger(WriteBehindSubmissionStatusStore.class);
+
+  public static long FLUSH_INTERVAL = 1000; // ms
+  public static int MAX_PENDING_CHANGES = 1000;
+
+  private final SubmissionStatusStore delegate;
+  private final ScheduledExecutorService flusher;
+  // Guarded by 'this'. A null record is a pending removal
+  private Map<String, SubmissionStatusRecord> pendingChanges = new LinkedHashMap<>();
+  // Flushes are written one at a time, so that an older batch never lands after a newer one
+  private final Object flushLock = new Object();
+
+  public WriteBehindSubmissionStatusStore(SubmissionStatusStore delegate) {
+    this.delegate = delegate;
+    this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "submission-status-store-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public void start() {
+    flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    flusher.shutdownNow();
+    try {
+      if (!flusher.awaitTermination(FLUSH_INTERVAL, TimeUnit.MILLISECONDS)) {
+        logger.warn("Submission status flush still running on stop");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  @Override
+  public void write(Map<String, SubmissionStatusRecord> changes) {
+    boolean full;
+    synchronized (this) {
+      pendingChanges.putAll(changes);
+      full = pendingChanges.size() >= MAX_PENDING_CHANGES;
+    }
+    if (full) {
+      try {
+        flusher.execute(this::flush);
+      } catch (RejectedExecutionException e) { // stopped
+        flush();
+      }
+    }
+  }
+
+  @Override
+  public SubmissionStatusRecord get(String submissionID) {
+    synchronized (this) {
+      if (pendingChanges.containsKey(submissionID)) {
+        return pendingChanges.get(submissionID);
+      }
+    }
+    return delegate.get(submissionID);
+  }
+
+  @Override
+  public Collection<SubmissionStatusRecord> getAll() {
+    Map<String, SubmissionStatusRecord> records = new LinkedHashMap<>();
+    for (SubmissionStatusRecord record : delegate.getAll()) {
+      records.put(record.getSubmissionID(), record);
+    }
+    synchronized (this) {
+      for (Map.Entry<String, SubmissionStatusRecord> change : pendingChanges.entrySet()) {
+        if (change.getValue() == null) {
+          records.remove(change.getKey());
+        } else {
+          records.put(change.getKey(), change.getValue());
+        }
+      }
+    }
+    return records.values();
+  }
+
+  public void flush() {
+    synchronized (flushLock) {
+      Map<String, SubmissionStatusRecord> changes;
+      synchronized (this) {
+        if (pendingChanges.isEmpty()) {
+          return;
+        }
+        changes = pendingChanges;
+        pendingChanges = new LinkedHashMap<>();
+      }
+      try {
+        delegate.write(changes);
+      } catch (Exception e) {
+        logger.error("Error while writing " + changes.size() + " submission status change(s): " + e.getMessage());
+        // Keep the changes for the next flush, unless newer ones were buffered in the meantime
+        synchronized (this) {
+          for (Map.Entry<String, SubmissionStatusRecord> change : changes.entrySet()) {
+            if (!pendingChanges.containsKey(change.getKey())) {
+              pendingChanges.put(change.getKey(), change.getValue());
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package org.metadatacenter.submission.xml;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Shared JAXB contexts for the submission XML documents. Building a context is by far the most expensive JAXB step, so
+ * each one is built once per class and reused; contexts are thread-safe. Marshallers and unmarshallers are not, so
+ * they are pooled and reused instead of being created for every document.
+ */
+public class JaxbContextRegistry {
+
+  private static final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, Queue<Marshaller>> formattedMarshallers = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, Queue<Marshaller>> marshallers = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, Queue<Marshaller>> fragmentMarshallers = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, Queue<Unmarshaller>> unmarshallers = new ConcurrentHashMap<>();
+
+  private JaxbContextRegistry() {
+  }
+
+  public static JAXBContext getContext(Class<?> type) throws JAXBException {
+    JAXBContext context = contexts.get(type);
+    if (context == null) {
+      context = JAXBContext.newInstance(type);
+      JAXBContext existingContext = contexts.putIfAbsent(type, context);
+      if (existingContext != null) {
+        context = existingContext;
+      }
+    }
+    return context;
+  }
+
+  public static String marshal(Object jaxbObject, boolean formatted) throws JAXBException {
+    StringWriter writer = new StringWriter();
+    marshal(jaxbObject, formatted, writer);
+    return writer.toString();
+  }
+
+  public static void marshal(Object jaxbObject, boolean formatted, Writer writer) throws JAXBException {
+    Marshaller marshaller = borrowMarshaller(jaxbObject.getClass(), formatted);
+    try {
+      marshaller.marshal(jaxbObject, writer);
+    } finally {
+      returnMarshaller(jaxbObject.getClass(), formatted, marshaller);
+    }
+  }
+
+  public static void marshal(Object jaxbObject, boolean formatted, OutputStream outputStream) throws JAXBException {
+    Marshaller marshaller = borrowMarshaller(jaxbObject.getClass(), formatted);
+    try {
+      marshaller.marshal(jaxbObject, outputStream);
+    } finally {
+      returnMarshaller(jaxbObject.getClass(), formatted, marshaller);
+    }
+  }
+
+  /**
+   * Marshal an element into a document that is being written, without any XML declaration. The element is marshalled
+   * with the context of contextType, which must know its class (e.g. the root class of the document).
+   */
+  public static void marshalFragment(Class<?> contextType, Object jaxbElement, XMLStreamWriter writer) throws
+      JAXBException {
+    Queue<Marshaller> pool = fragmentMarshallers.computeIfAbsent(contextType, k -> new ConcurrentLinkedQueue<>());
+    Marshaller marshaller = pool.poll();
+    if (marshaller == null) {
+      marshaller = getContext(contextType).createMarshaller();
+      marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+    }
+    try {
+      marshaller.marshal(jaxbElement, writer);
+    } finally {
+      pool.offer(marshaller);
+    }
+  }
+
+  public static <T> T unmarshal(Class<T> type, InputStream inputStream) throws JAXBException {
+    Queue<Unmarshaller> pool = unmarshallers.computeIfAbsent(type, k -> new ConcurrentLinkedQueue<>());
+    Unmarshaller unmarshaller = pool.poll();
+    if (unmarshaller == null) {
+      unmarshaller = getContext(type).createUnmarshaller();
+    }
+    try {
+      return type.cast(unmarshaller.unmarshal(inputStream));
+    } finally {
+      pool.offer(unmarshaller);
+    }
+  }
+
+  private static Marshaller borrowMarshaller(Class<?> type, boolean formatted) throws JAXBException {
+    Marshaller marshaller = getMarshallerPool(type, formatted).poll();
+    if (marshaller == null) {
+      marshaller = getContext(type).createMarshaller();
+      marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+    }
+    return marshaller;
+  }
+
+  private static void returnMarshaller(Class<?> type, boolean formatted, Marshaller marshaller) {
+    getMarshallerPool(type, formatted).offer(marshaller);
+  }
+
+  private static Queue<Marshaller> getMarshallerPool(Class<?> type, boolean formatted) {
+    return (formatted ? formattedMarshallers : marshallers).computeIfAbsent(type, k -> new ConcurrentLinkedQueue<>());
+  }
+}